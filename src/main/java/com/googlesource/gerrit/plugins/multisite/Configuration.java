@@ -24,6 +24,7 @@ import com.google.common.base.Strings;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.gerrit.server.config.ConfigUtil;
 import com.google.gerrit.server.config.SitePaths;
 import com.google.inject.Inject;
@@ -46,8 +47,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.eclipse.jgit.errors.ConfigInvalidException;
@@ -72,10 +73,29 @@ public class Configuration {
   private static final String REPLICATION_LAG_REFRESH_INTERVAL = "replicationLagRefreshInterval";
   private static final String REPLICATION_LAG_ENABLED = "replicationLagEnabled";
   private static final Duration REPLICATION_LAG_REFRESH_INTERVAL_DEFAULT = Duration.ofSeconds(60);
+  private static final String REPLICATION_LAG_REFRESH_MAX_INTERVAL =
+      "replicationLagRefreshMaxInterval";
+  private static final Duration REPLICATION_LAG_REFRESH_MAX_INTERVAL_DEFAULT =
+      Duration.ofMinutes(15);
+  private static final String REPLICATION_LAG_REFRESH_THREADS = "replicationLagRefreshThreads";
+  private static final int REPLICATION_LAG_REFRESH_THREADS_DEFAULT = 4;
+  private static final String REPLICATION_LAG_UPDATE_THREADS = "replicationLagUpdateThreads";
+  private static final int REPLICATION_LAG_UPDATE_THREADS_DEFAULT = 2;
+  private static final String REPLICATION_STATUS_FLUSH_INTERVAL = "replicationStatusFlushInterval";
+  private static final String REPLICATION_LAG_METRIC_MAX_PROJECTS =
+      "replicationLagMetricMaxProjects";
+  private static final int REPLICATION_LAG_METRIC_MAX_PROJECTS_DEFAULT = 100;
+  private static final Duration REPLICATION_STATUS_FLUSH_INTERVAL_DEFAULT = Duration.ofSeconds(10);
   private static final String PUSH_REPLICATION_FILTER_ENABLED = "pushReplicationFilterEnabled";
   private static final String PULL_REPLICATION_FILTER_ENABLED = "pullReplicationFilterEnabled";
   private static final String LOCAL_REF_LOCK_TIMEOUT = "localRefLockTimeout";
   private static final Duration LOCAL_REF_LOCK_TIMEOUT_DEFAULT = Duration.ofSeconds(30);
+  private static final String NEAR_CACHE_TTL = "nearCacheTtl";
+  private static final Duration NEAR_CACHE_TTL_DEFAULT = Duration.ZERO;
+  private static final String NEAR_CACHE_MAX_SIZE = "nearCacheMaxSize";
+  private static final long NEAR_CACHE_MAX_SIZE_DEFAULT = 10000L;
+  private static final String PROJECT_VERSION_UPDATE_INTERVAL = "projectVersionUpdateInterval";
+  private static final Duration PROJECT_VERSION_UPDATE_INTERVAL_DEFAULT = Duration.ZERO;
 
   private static final String REPLICATION_CONFIG = "replication.config";
   // common parameters to cache and index sections
@@ -96,10 +116,18 @@ public class Configuration {
   private final Supplier<ReplicationFilter> replicationFilter;
   private final Config multiSiteConfig;
   private final Supplier<Duration> replicationLagRefreshInterval;
+  private final Supplier<Duration> replicationLagRefreshMaxInterval;
+  private final Supplier<Integer> replicationLagRefreshThreads;
+  private final Supplier<Integer> replicationLagUpdateThreads;
+  private final Supplier<Duration> replicationStatusFlushInterval;
+  private final Supplier<Integer> replicationLagMetricMaxProjects;
   private final Supplier<Boolean> replicationLagEnabled;
   private Supplier<Boolean> pushReplicationFilterEnabled;
   private Supplier<Boolean> pullReplicationFilterEnabled;
   private final Supplier<Long> localRefLockTimeoutMsec;
+  private final Supplier<Long> nearCacheTtlMsec;
+  private final Supplier<Long> nearCacheMaxSize;
+  private final Supplier<Long> projectVersionUpdateIntervalMsec;
 
   @Inject
   Configuration(SitePaths sitePaths) {
@@ -133,6 +161,55 @@ public class Configuration {
                         REPLICATION_LAG_REFRESH_INTERVAL,
                         REPLICATION_LAG_REFRESH_INTERVAL_DEFAULT.toMillis(),
                         TimeUnit.MILLISECONDS)));
+    replicationLagRefreshMaxInterval =
+        memoize(
+            () ->
+                Duration.ofMillis(
+                    ConfigUtil.getTimeUnit(
+                        lazyMultiSiteCfg.get(),
+                        REF_DATABASE,
+                        null,
+                        REPLICATION_LAG_REFRESH_MAX_INTERVAL,
+                        REPLICATION_LAG_REFRESH_MAX_INTERVAL_DEFAULT.toMillis(),
+                        TimeUnit.MILLISECONDS)));
+    replicationLagRefreshThreads =
+        memoize(
+            () ->
+                getInt(
+                    lazyMultiSiteCfg,
+                    REF_DATABASE,
+                    null,
+                    REPLICATION_LAG_REFRESH_THREADS,
+                    REPLICATION_LAG_REFRESH_THREADS_DEFAULT));
+    replicationLagUpdateThreads =
+        memoize(
+            () ->
+                getInt(
+                    lazyMultiSiteCfg,
+                    REF_DATABASE,
+                    null,
+                    REPLICATION_LAG_UPDATE_THREADS,
+                    REPLICATION_LAG_UPDATE_THREADS_DEFAULT));
+    replicationStatusFlushInterval =
+        memoize(
+            () ->
+                Duration.ofMillis(
+                    ConfigUtil.getTimeUnit(
+                        lazyMultiSiteCfg.get(),
+                        REF_DATABASE,
+                        null,
+                        REPLICATION_STATUS_FLUSH_INTERVAL,
+                        REPLICATION_STATUS_FLUSH_INTERVAL_DEFAULT.toMillis(),
+                        TimeUnit.MILLISECONDS)));
+    replicationLagMetricMaxProjects =
+        memoize(
+            () ->
+                getInt(
+                    lazyMultiSiteCfg,
+                    REF_DATABASE,
+                    null,
+                    REPLICATION_LAG_METRIC_MAX_PROJECTS,
+                    REPLICATION_LAG_METRIC_MAX_PROJECTS_DEFAULT));
     replicationLagEnabled =
         memoize(
             () ->
@@ -162,6 +239,35 @@ public class Configuration {
                     LOCAL_REF_LOCK_TIMEOUT,
                     LOCAL_REF_LOCK_TIMEOUT_DEFAULT.toMillis(),
                     TimeUnit.MILLISECONDS));
+    nearCacheTtlMsec =
+        memoize(
+            () ->
+                ConfigUtil.getTimeUnit(
+                    lazyMultiSiteCfg.get(),
+                    REF_DATABASE,
+                    null,
+                    NEAR_CACHE_TTL,
+                    NEAR_CACHE_TTL_DEFAULT.toMillis(),
+                    TimeUnit.MILLISECONDS));
+    nearCacheMaxSize =
+        memoize(
+            () ->
+                getLong(
+                    lazyMultiSiteCfg,
+                    REF_DATABASE,
+                    null,
+                    NEAR_CACHE_MAX_SIZE,
+                    NEAR_CACHE_MAX_SIZE_DEFAULT));
+    projectVersionUpdateIntervalMsec =
+        memoize(
+            () ->
+                ConfigUtil.getTimeUnit(
+                    lazyMultiSiteCfg.get(),
+                    REF_DATABASE,
+                    null,
+                    PROJECT_VERSION_UPDATE_INTERVAL,
+                    PROJECT_VERSION_UPDATE_INTERVAL_DEFAULT.toMillis(),
+                    TimeUnit.MILLISECONDS));
   }
 
   public Config getMultiSiteConfig() {
@@ -200,6 +306,26 @@ public class Configuration {
     return replicationLagRefreshInterval.get();
   }
 
+  public Duration replicationLagRefreshMaxInterval() {
+    return replicationLagRefreshMaxInterval.get();
+  }
+
+  public int replicationLagRefreshThreads() {
+    return replicationLagRefreshThreads.get();
+  }
+
+  public int replicationLagUpdateThreads() {
+    return replicationLagUpdateThreads.get();
+  }
+
+  public Duration replicationStatusFlushInterval() {
+    return replicationStatusFlushInterval.get();
+  }
+
+  public int replicationLagMetricMaxProjects() {
+    return replicationLagMetricMaxProjects.get();
+  }
+
   public boolean replicationLagEnabled() {
     return replicationLagEnabled.get();
   }
@@ -224,6 +350,18 @@ public class Configuration {
     return localRefLockTimeoutMsec.get();
   }
 
+  public long sharedRefDbNearCacheTtlMsec() {
+    return nearCacheTtlMsec.get();
+  }
+
+  public long sharedRefDbNearCacheMaxSize() {
+    return nearCacheMaxSize.get();
+  }
+
+  public long projectVersionUpdateIntervalMsec() {
+    return projectVersionUpdateIntervalMsec.get();
+  }
+
   public Collection<Message> validate() {
     return replicationConfigValidation.get();
   }
@@ -351,21 +489,151 @@ public class Configuration {
   public static class Cache extends Forwarding {
     static final String CACHE_SECTION = "cache";
     static final String PATTERN_KEY = "pattern";
+    static final String EVICTION_BATCH_WINDOW_KEY = "evictionBatchWindow";
+    static final String EVICTION_BATCH_THRESHOLD_KEY = "evictionBatchThreshold";
+    static final int DEFAULT_EVICTION_BATCH_THRESHOLD = 1000;
+    static final String REFRESH_AHEAD_KEY = "refreshAhead";
+    static final String REFRESH_AHEAD_THREADS_KEY = "refreshAheadThreads";
+    static final int DEFAULT_REFRESH_AHEAD_THREADS = 2;
+    static final String REFRESH_AHEAD_DELAY_KEY = "refreshAheadDelay";
+    static final long DEFAULT_REFRESH_AHEAD_DELAY_MSEC = TimeUnit.SECONDS.toMillis(5);
+    static final String PROJECT_LIST_REBUILD_INTERVAL_KEY = "projectListRebuildInterval";
+    static final long DEFAULT_PROJECT_LIST_REBUILD_INTERVAL_MSEC = TimeUnit.HOURS.toMillis(1);
+    static final String PROJECT_LIST_BATCH_WINDOW_KEY = "projectListBatchWindow";
+    static final String PROJECT_LIST_BATCH_THRESHOLD_KEY = "projectListBatchThreshold";
+    static final int DEFAULT_PROJECT_LIST_BATCH_THRESHOLD = 1000;
+    static final String HIGH_PRIORITY_KEY = "highPriority";
+    static final String HIGH_PRIORITY_THREADS_KEY = "highPriorityThreads";
+    static final int DEFAULT_HIGH_PRIORITY_THREADS = 1;
+    static final String NORMAL_PRIORITY_QUEUE_SIZE_KEY = "normalPriorityQueueSize";
+    static final int DEFAULT_NORMAL_PRIORITY_QUEUE_SIZE = 1000;
 
     private final int threadPoolSize;
     private final List<String> patterns;
+    private final long evictionBatchWindowMsec;
+    private final int evictionBatchThreshold;
+    private final Set<String> refreshAhead;
+    private final int refreshAheadThreads;
+    private final long refreshAheadDelayMsec;
+    private final long projectListRebuildIntervalMsec;
+    private final long projectListBatchWindowMsec;
+    private final int projectListBatchThreshold;
+    private final List<String> highPriority;
+    private final int highPriorityThreads;
+    private final int normalPriorityQueueSize;
 
     private Cache(Supplier<Config> cfg) {
       super(cfg, CACHE_SECTION);
       threadPoolSize =
           getInt(cfg, CACHE_SECTION, null, THREAD_POOL_SIZE_KEY, DEFAULT_THREAD_POOL_SIZE);
       patterns = Arrays.asList(cfg.get().getStringList(CACHE_SECTION, null, PATTERN_KEY));
+      evictionBatchWindowMsec =
+          ConfigUtil.getTimeUnit(
+              cfg.get(), CACHE_SECTION, null, EVICTION_BATCH_WINDOW_KEY, 0, TimeUnit.MILLISECONDS);
+      evictionBatchThreshold =
+          getInt(
+              cfg,
+              CACHE_SECTION,
+              null,
+              EVICTION_BATCH_THRESHOLD_KEY,
+              DEFAULT_EVICTION_BATCH_THRESHOLD);
+      refreshAhead =
+          ImmutableSet.copyOf(cfg.get().getStringList(CACHE_SECTION, null, REFRESH_AHEAD_KEY));
+      refreshAheadThreads =
+          getInt(
+              cfg, CACHE_SECTION, null, REFRESH_AHEAD_THREADS_KEY, DEFAULT_REFRESH_AHEAD_THREADS);
+      refreshAheadDelayMsec =
+          ConfigUtil.getTimeUnit(
+              cfg.get(),
+              CACHE_SECTION,
+              null,
+              REFRESH_AHEAD_DELAY_KEY,
+              DEFAULT_REFRESH_AHEAD_DELAY_MSEC,
+              TimeUnit.MILLISECONDS);
+      projectListRebuildIntervalMsec =
+          ConfigUtil.getTimeUnit(
+              cfg.get(),
+              CACHE_SECTION,
+              null,
+              PROJECT_LIST_REBUILD_INTERVAL_KEY,
+              DEFAULT_PROJECT_LIST_REBUILD_INTERVAL_MSEC,
+              TimeUnit.MILLISECONDS);
+      projectListBatchWindowMsec =
+          ConfigUtil.getTimeUnit(
+              cfg.get(),
+              CACHE_SECTION,
+              null,
+              PROJECT_LIST_BATCH_WINDOW_KEY,
+              0,
+              TimeUnit.MILLISECONDS);
+      projectListBatchThreshold =
+          getInt(
+              cfg,
+              CACHE_SECTION,
+              null,
+              PROJECT_LIST_BATCH_THRESHOLD_KEY,
+              DEFAULT_PROJECT_LIST_BATCH_THRESHOLD);
+      highPriority = Arrays.asList(cfg.get().getStringList(CACHE_SECTION, null, HIGH_PRIORITY_KEY));
+      highPriorityThreads =
+          getInt(
+              cfg, CACHE_SECTION, null, HIGH_PRIORITY_THREADS_KEY, DEFAULT_HIGH_PRIORITY_THREADS);
+      normalPriorityQueueSize =
+          getInt(
+              cfg,
+              CACHE_SECTION,
+              null,
+              NORMAL_PRIORITY_QUEUE_SIZE_KEY,
+              DEFAULT_NORMAL_PRIORITY_QUEUE_SIZE);
     }
 
     public int threadPoolSize() {
       return threadPoolSize;
     }
 
+    public long evictionBatchWindowMsec() {
+      return evictionBatchWindowMsec;
+    }
+
+    public int evictionBatchThreshold() {
+      return evictionBatchThreshold;
+    }
+
+    public Set<String> refreshAhead() {
+      return refreshAhead;
+    }
+
+    public int refreshAheadThreads() {
+      return refreshAheadThreads;
+    }
+
+    public long refreshAheadDelayMsec() {
+      return refreshAheadDelayMsec;
+    }
+
+    public long projectListRebuildIntervalMsec() {
+      return projectListRebuildIntervalMsec;
+    }
+
+    public long projectListBatchWindowMsec() {
+      return projectListBatchWindowMsec;
+    }
+
+    public int projectListBatchThreshold() {
+      return projectListBatchThreshold;
+    }
+
+    public List<String> highPriority() {
+      return Collections.unmodifiableList(highPriority);
+    }
+
+    public int highPriorityThreads() {
+      return highPriorityThreads;
+    }
+
+    public int normalPriorityQueueSize() {
+      return normalPriorityQueueSize;
+    }
+
     public List<String> patterns() {
       return Collections.unmodifiableList(patterns);
     }
@@ -373,9 +641,38 @@ public class Configuration {
 
   public static class Event extends Forwarding {
     static final String EVENT_SECTION = "event";
+    static final String PUBLISH_TYPE_KEY = "publishType";
+    static final String PUBLISH_PROJECT_KEY = "publishProject";
+    static final String SKIP_REF_PREFIX_KEY = "skipRefPrefix";
+
+    private final List<String> publishTypes;
+    private final List<String> publishProjects;
+    private final List<String> skipRefPrefixes;
 
     private Event(Supplier<Config> cfg) {
       super(cfg, EVENT_SECTION);
+      publishTypes =
+          ImmutableList.copyOf(cfg.get().getStringList(EVENT_SECTION, null, PUBLISH_TYPE_KEY));
+      publishProjects =
+          ImmutableList.copyOf(cfg.get().getStringList(EVENT_SECTION, null, PUBLISH_PROJECT_KEY));
+      skipRefPrefixes =
+          ImmutableList.copyOf(cfg.get().getStringList(EVENT_SECTION, null, SKIP_REF_PREFIX_KEY));
+    }
+
+    public List<String> publishTypes() {
+      return publishTypes;
+    }
+
+    public List<String> publishProjects() {
+      return publishProjects;
+    }
+
+    public List<String> skipRefPrefixes() {
+      return skipRefPrefixes;
+    }
+
+    public boolean hasPublishFilters() {
+      return !publishTypes.isEmpty() || !publishProjects.isEmpty() || !skipRefPrefixes.isEmpty();
     }
   }
 
@@ -499,12 +796,21 @@ public class Configuration {
     private static final String RANDOM_WAIT_MAX_BOUND_BEFORE_RELOAD_LOCAL_VERSION_MS =
         "maxRandomWaitBeforeReloadLocalVersionMs";
 
+    private static final String ADAPTIVE_WAIT_PERCENTILE = "adaptiveWaitPercentile";
+    private static final String NOT_UP_TO_DATE_CACHE_TTL_MS = "notUpToDateCacheTtlMs";
+
     private static final int MIN_WAIT_BEFORE_RELOAD_LOCAL_VERSION_MS_DEFAULT = 1000;
     private static final int RANDOM_WAIT_MAX_BOUND_BEFORE_RELOAD_LOCAL_VERSION_MS_DEFAULT = 1000;
+    private static final int ADAPTIVE_WAIT_PERCENTILE_DEFAULT = 90;
+    private static final int NOT_UP_TO_DATE_CACHE_TTL_MS_DEFAULT = 5000;
     private final Supplier<Integer> fetchMinWaitBeforeReloadLocalVersionMs;
     private final Supplier<Integer> fetchWaitBeforeReloadLocalVersionMs;
     private final Supplier<Integer> pushMinWaitBeforeReloadLocalVersionMs;
     private final Supplier<Integer> pushWaitBeforeReloadLocalVersionMs;
+    private final Supplier<Integer> fetchAdaptiveWaitPercentile;
+    private final Supplier<Integer> pushAdaptiveWaitPercentile;
+    private final Supplier<Integer> fetchNotUpToDateCacheTtlMs;
+    private final Supplier<Integer> pushNotUpToDateCacheTtlMs;
 
     public ReplicationFilter(Supplier<Config> cfg) {
       fetchMinWaitBeforeReloadLocalVersionMs =
@@ -543,6 +849,42 @@ public class Configuration {
                           REPLICATION_PUSH_FILTER_SUBSECTION,
                           RANDOM_WAIT_MAX_BOUND_BEFORE_RELOAD_LOCAL_VERSION_MS,
                           RANDOM_WAIT_MAX_BOUND_BEFORE_RELOAD_LOCAL_VERSION_MS_DEFAULT));
+      fetchAdaptiveWaitPercentile =
+          memoize(
+              () ->
+                  cfg.get()
+                      .getInt(
+                          REPLICATION_FILTER_SECTION,
+                          REPLICATION_FETCH_FILTER_SUBSECTION,
+                          ADAPTIVE_WAIT_PERCENTILE,
+                          ADAPTIVE_WAIT_PERCENTILE_DEFAULT));
+      pushAdaptiveWaitPercentile =
+          memoize(
+              () ->
+                  cfg.get()
+                      .getInt(
+                          REPLICATION_FILTER_SECTION,
+                          REPLICATION_PUSH_FILTER_SUBSECTION,
+                          ADAPTIVE_WAIT_PERCENTILE,
+                          ADAPTIVE_WAIT_PERCENTILE_DEFAULT));
+      fetchNotUpToDateCacheTtlMs =
+          memoize(
+              () ->
+                  cfg.get()
+                      .getInt(
+                          REPLICATION_FILTER_SECTION,
+                          REPLICATION_FETCH_FILTER_SUBSECTION,
+                          NOT_UP_TO_DATE_CACHE_TTL_MS,
+                          NOT_UP_TO_DATE_CACHE_TTL_MS_DEFAULT));
+      pushNotUpToDateCacheTtlMs =
+          memoize(
+              () ->
+                  cfg.get()
+                      .getInt(
+                          REPLICATION_FILTER_SECTION,
+                          REPLICATION_PUSH_FILTER_SUBSECTION,
+                          NOT_UP_TO_DATE_CACHE_TTL_MS,
+                          NOT_UP_TO_DATE_CACHE_TTL_MS_DEFAULT));
     }
 
     public boolean isFetchFilterRandomSleepEnabled() {
@@ -551,7 +893,20 @@ public class Configuration {
 
     public Integer fetchFilterRandomSleepTimeMs() {
       return fetchMinWaitBeforeReloadLocalVersionMs.get()
-          + new Random().nextInt(fetchWaitBeforeReloadLocalVersionMs.get());
+          + ThreadLocalRandom.current().nextInt(fetchWaitBeforeReloadLocalVersionMs.get());
+    }
+
+    public int fetchFilterMaxSleepTimeMs() {
+      return fetchMinWaitBeforeReloadLocalVersionMs.get()
+          + fetchWaitBeforeReloadLocalVersionMs.get();
+    }
+
+    public int fetchFilterAdaptiveWaitPercentile() {
+      return fetchAdaptiveWaitPercentile.get();
+    }
+
+    public int fetchFilterNotUpToDateCacheTtlMs() {
+      return fetchNotUpToDateCacheTtlMs.get();
     }
 
     public boolean isPushFilterRandomSleepEnabled() {
@@ -560,7 +915,19 @@ public class Configuration {
 
     public Integer pushFilterRandomSleepTimeMs() {
       return pushMinWaitBeforeReloadLocalVersionMs.get()
-          + new Random().nextInt(pushWaitBeforeReloadLocalVersionMs.get());
+          + ThreadLocalRandom.current().nextInt(pushWaitBeforeReloadLocalVersionMs.get());
+    }
+
+    public int pushFilterMaxSleepTimeMs() {
+      return pushMinWaitBeforeReloadLocalVersionMs.get() + pushWaitBeforeReloadLocalVersionMs.get();
+    }
+
+    public int pushFilterAdaptiveWaitPercentile() {
+      return pushAdaptiveWaitPercentile.get();
+    }
+
+    public int pushFilterNotUpToDateCacheTtlMs() {
+      return pushNotUpToDateCacheTtlMs.get();
     }
   }
 
@@ -15,15 +15,19 @@
 package com.googlesource.gerrit.plugins.multisite;
 
 import com.gerritforge.gerrit.globalrefdb.validation.LibModule;
+import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.extensions.registration.DynamicSet;
 import com.google.gerrit.lifecycle.LifecycleModule;
 import com.google.inject.CreationException;
 import com.google.inject.Inject;
+import com.google.inject.multibindings.OptionalBinder;
 import com.google.inject.spi.Message;
 import com.googlesource.gerrit.plugins.multisite.broker.BrokerModule;
 import com.googlesource.gerrit.plugins.multisite.cache.CacheModule;
 import com.googlesource.gerrit.plugins.multisite.forwarder.ForwarderModule;
 import com.googlesource.gerrit.plugins.multisite.forwarder.router.RouterModule;
 import com.googlesource.gerrit.plugins.multisite.index.IndexModule;
+import com.googlesource.gerrit.plugins.multisite.validation.SharedRefDbNearCache;
 import java.util.Collection;
 
 public class Module extends LifecycleModule {
@@ -47,6 +51,13 @@ public class Module extends LifecycleModule {
 
     install(new ForwarderModule());
 
+    OptionalBinder<SharedRefDbNearCache> sharedRefDbNearCacheBinder =
+        OptionalBinder.newOptionalBinder(binder(), SharedRefDbNearCache.class);
+    if (config.getSharedRefDbConfiguration().getSharedRefDb().isEnabled()) {
+      sharedRefDbNearCacheBinder.setBinding().to(SharedRefDbNearCache.class);
+      DynamicSet.bind(binder(), GitBatchRefUpdateListener.class).to(SharedRefDbNearCache.class);
+    }
+
     if (config.cache().synchronize()) {
       install(new CacheModule());
       brokerRouterNeeded = true;
@@ -19,35 +19,127 @@ import com.google.gerrit.extensions.registration.DynamicSet;
 import com.google.gerrit.server.cache.CacheRemovalListener;
 import com.google.gerrit.server.config.GerritInstanceId;
 import com.google.inject.Inject;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
 import com.googlesource.gerrit.plugins.multisite.forwarder.CacheEvictionForwarder;
+import com.googlesource.gerrit.plugins.multisite.forwarder.CacheEvictionMetrics;
+import com.googlesource.gerrit.plugins.multisite.forwarder.CacheEvictionPriority;
 import com.googlesource.gerrit.plugins.multisite.forwarder.Context;
 import com.googlesource.gerrit.plugins.multisite.forwarder.ForwarderTask;
 import com.googlesource.gerrit.plugins.multisite.forwarder.events.CacheEvictionEvent;
-import java.util.concurrent.Executor;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class CacheEvictionHandler<K, V> implements CacheRemovalListener<K, V> {
-  private final Executor executor;
+  private final ScheduledExecutorService executor;
+  private final ScheduledExecutorService highPriorityExecutor;
   private final DynamicSet<CacheEvictionForwarder> forwarders;
   private final CachePatternMatcher matcher;
   private final String instanceId;
+  private final CacheEvictionMetrics metrics;
+  private final CacheEvictionPriority priority;
+  private final long batchWindowMsec;
+  private final int batchThreshold;
+  private final ConcurrentMap<String, PendingEvictions> pendingEvictions =
+      new ConcurrentHashMap<>();
 
   @Inject
   CacheEvictionHandler(
       DynamicSet<CacheEvictionForwarder> forwarders,
-      @CacheExecutor Executor executor,
+      @CacheExecutor ScheduledExecutorService executor,
+      @CacheHighPriorityExecutor ScheduledExecutorService highPriorityExecutor,
       CachePatternMatcher matcher,
-      @GerritInstanceId String instanceId) {
+      @GerritInstanceId String instanceId,
+      CacheEvictionMetrics metrics,
+      CacheEvictionPriority priority,
+      Configuration config) {
     this.forwarders = forwarders;
     this.executor = executor;
+    this.highPriorityExecutor = highPriorityExecutor;
     this.matcher = matcher;
     this.instanceId = instanceId;
+    this.metrics = metrics;
+    this.priority = priority;
+    this.batchWindowMsec = config.cache().evictionBatchWindowMsec();
+    this.batchThreshold = config.cache().evictionBatchThreshold();
   }
 
   @Override
   public void onRemoval(String plugin, String cache, RemovalNotification<K, V> notification) {
-    if (!Context.isForwardedEvent() && !notification.wasEvicted() && matcher.matches(cache)) {
-      executor.execute(
-          new CacheEvictionTask(new CacheEvictionEvent(cache, notification.getKey(), instanceId)));
+    if (!Context.isForwardedEvent()
+        && !notification.wasEvicted()
+        && !Constants.PROJECT_LIST.equals(cache)
+        && matcher.matches(cache)) {
+      long evictedOn = System.currentTimeMillis();
+      if (priority.of(cache) == CacheEvictionPriority.Priority.HIGH) {
+        // Never delayed by the batch window nor queued behind the other evictions
+        highPriorityExecutor.execute(
+            new CacheEvictionTask(newEvictionEvent(cache, notification.getKey(), evictedOn)));
+        return;
+      }
+      if (batchWindowMsec <= 0) {
+        executor.execute(
+            new CacheEvictionTask(newEvictionEvent(cache, notification.getKey(), evictedOn)));
+        return;
+      }
+
+      AtomicBoolean newBatch = new AtomicBoolean();
+      pendingEvictions.compute(
+          cache,
+          (name, pending) -> {
+            if (pending == null) {
+              pending = new PendingEvictions(evictedOn);
+              newBatch.set(true);
+            }
+            // Once over the threshold the whole cache is evicted, no need to keep collecting
+            if (pending.keys.size() <= batchThreshold) {
+              pending.keys.add(notification.getKey());
+            }
+            return pending;
+          });
+      if (newBatch.get()) {
+        executor.schedule(() -> flushEvictions(cache), batchWindowMsec, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  private CacheEvictionEvent newEvictionEvent(String cache, Object key, long evictedOn) {
+    CacheEvictionEvent event = new CacheEvictionEvent(cache, key, instanceId);
+    // The latencies are measured from the removal, whatever the time spent queued before sending
+    event.evictedOn = evictedOn;
+    return event;
+  }
+
+  private void flushEvictions(String cache) {
+    PendingEvictions pending = pendingEvictions.remove(cache);
+    if (pending == null) {
+      return;
+    }
+
+    Set<Object> keys = pending.keys;
+    CacheEvictionEvent event;
+    if (keys.size() > batchThreshold) {
+      event = CacheEvictionEvent.forAllKeys(cache, instanceId);
+    } else if (keys.size() == 1) {
+      event = new CacheEvictionEvent(cache, keys.iterator().next(), instanceId);
+    } else {
+      event = CacheEvictionEvent.forKeys(cache, keys, instanceId);
+    }
+    // The receivers measure the propagation from the first eviction, batch window included
+    event.evictedOn = pending.firstEvictedOn;
+    new CacheEvictionTask(event).run();
+  }
+
+  private static class PendingEvictions {
+    final long firstEvictedOn;
+    final Set<Object> keys = new LinkedHashSet<>();
+
+    PendingEvictions(long firstEvictedOn) {
+      this.firstEvictedOn = firstEvictedOn;
     }
   }
 
@@ -60,11 +152,24 @@ class CacheEvictionHandler<K, V> implements CacheRemovalListener<K, V> {
 
     @Override
     public void run() {
+      metrics.incrementSentEviction(cacheEvictionEvent.cacheName);
       forwarders.forEach(f -> f.evict(this, cacheEvictionEvent));
+      metrics.recordPublishLatency(
+          priority.of(cacheEvictionEvent.cacheName),
+          System.currentTimeMillis() - cacheEvictionEvent.evictedOn);
     }
 
     @Override
     public String toString() {
+      if (cacheEvictionEvent.allKeys) {
+        return String.format(
+            "Evict all keys from cache '%s' in target instance", cacheEvictionEvent.cacheName);
+      }
+      if (cacheEvictionEvent.keys != null) {
+        return String.format(
+            "Evict %d keys from cache '%s' in target instance",
+            cacheEvictionEvent.keys.size(), cacheEvictionEvent.cacheName);
+      }
       return String.format(
           "Evict key '%s' from cache '%s' in target instance",
           cacheEvictionEvent.key, cacheEvictionEvent.cacheName);
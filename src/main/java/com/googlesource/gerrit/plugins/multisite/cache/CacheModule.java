@@ -22,6 +22,7 @@ import com.google.gerrit.lifecycle.LifecycleModule;
 import com.google.gerrit.server.cache.CacheRemovalListener;
 import com.googlesource.gerrit.plugins.multisite.ExecutorProvider;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class CacheModule extends LifecycleModule {
 
@@ -39,7 +40,14 @@ public class CacheModule extends LifecycleModule {
   @Override
   protected void configure() {
     bind(Executor.class).annotatedWith(CacheExecutor.class).toProvider(cacheExecutorProviderClass);
+    bind(ScheduledExecutorService.class)
+        .annotatedWith(CacheExecutor.class)
+        .toProvider(cacheExecutorProviderClass);
     listener().to(CacheExecutorProvider.class);
+    bind(ScheduledExecutorService.class)
+        .annotatedWith(CacheHighPriorityExecutor.class)
+        .toProvider(CacheHighPriorityExecutorProvider.class);
+    listener().to(CacheHighPriorityExecutorProvider.class);
     DynamicSet.bind(binder(), CacheRemovalListener.class).to(CacheEvictionHandler.class);
     DynamicSet.bind(binder(), NewProjectCreatedListener.class).to(ProjectListUpdateHandler.class);
     DynamicSet.bind(binder(), ProjectDeletedListener.class).to(ProjectListUpdateHandler.class);
@@ -21,6 +21,8 @@ import com.google.inject.Singleton;
 import com.googlesource.gerrit.plugins.multisite.Configuration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 @Singleton
@@ -29,15 +31,23 @@ class CachePatternMatcher {
       ImmutableList.of("^groups.*", "ldap_groups", "ldap_usernames", "projects", "sshkeys");
 
   private final Pattern pattern;
+  private final CachePatternMatcherMetrics metrics;
+  // Cache names are few and fixed, and a new matcher is created when the plugin is reloaded
+  private final Map<String, Boolean> matchingCaches = new ConcurrentHashMap<>();
 
   @Inject
-  CachePatternMatcher(Configuration cfg) {
+  CachePatternMatcher(Configuration cfg, CachePatternMatcherMetrics metrics) {
     List<String> patterns = new ArrayList<>(DEFAULT_PATTERNS);
     patterns.addAll(cfg.cache().patterns());
     this.pattern = Pattern.compile(Joiner.on("|").join(patterns));
+    this.metrics = metrics;
   }
 
   boolean matches(String cacheName) {
-    return pattern.matcher(cacheName).matches();
+    metrics.incrementEvaluation(cacheName);
+    return matchingCaches.computeIfAbsent(
+        cacheName,
+        // The keys of adv_bases cannot be decoded on the other sites, even if a pattern matches it
+        name -> !Constants.ADV_BASES.equals(name) && pattern.matcher(name).matches());
   }
 }
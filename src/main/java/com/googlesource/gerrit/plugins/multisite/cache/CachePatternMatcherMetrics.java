@@ -0,0 +1,43 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.cache;
+
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.MultiSiteMetrics;
+
+@Singleton
+public class CachePatternMatcherMetrics extends MultiSiteMetrics {
+  private static final String CACHE_NAME = "cache_name";
+
+  private final Counter1<String> evaluationCounter;
+
+  @Inject
+  public CachePatternMatcherMetrics(MetricMaker metricMaker) {
+    this.evaluationCounter =
+        metricMaker.newCounter(
+            "multi_site/cache/pattern_matcher/evaluation_counter",
+            rateDescription(
+                "evaluations",
+                "Number of cache removals checked against the patterns of the forwarded caches"),
+            stringField(CACHE_NAME, "Name of the cache"));
+  }
+
+  public void incrementEvaluation(String cacheName) {
+    evaluationCounter.increment(cacheName);
+  }
+}
@@ -22,6 +22,7 @@ public final class Constants {
   public static final String GROUPS_BYINCLUDE = "groups_byinclude";
   public static final String GROUPS_MEMBERS = "groups_members";
   public static final String PROJECTS = "projects";
+  public static final String ADV_BASES = "adv_bases";
 
   private Constants() {}
 }
@@ -14,6 +14,8 @@
 
 package com.googlesource.gerrit.plugins.multisite.cache;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.gerrit.extensions.events.NewProjectCreatedListener;
 import com.google.gerrit.extensions.events.ProjectDeletedListener;
 import com.google.gerrit.extensions.events.ProjectEvent;
@@ -21,27 +23,40 @@ import com.google.gerrit.extensions.registration.DynamicSet;
 import com.google.gerrit.server.config.GerritInstanceId;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
 import com.googlesource.gerrit.plugins.multisite.forwarder.Context;
 import com.googlesource.gerrit.plugins.multisite.forwarder.ForwarderTask;
 import com.googlesource.gerrit.plugins.multisite.forwarder.ProjectListUpdateForwarder;
 import com.googlesource.gerrit.plugins.multisite.forwarder.events.ProjectListUpdateEvent;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Singleton
 public class ProjectListUpdateHandler implements NewProjectCreatedListener, ProjectDeletedListener {
   private final DynamicSet<ProjectListUpdateForwarder> forwarders;
-  private final Executor executor;
+  private final ScheduledExecutorService executor;
   private final String instanceId;
+  private final long batchWindowMsec;
+  private final int batchThreshold;
+  // Latest update of each project within the batch window, true if it was removed
+  private final Map<String, Boolean> pendingUpdates = new LinkedHashMap<>();
 
   @Inject
   public ProjectListUpdateHandler(
       DynamicSet<ProjectListUpdateForwarder> forwarders,
-      @CacheExecutor Executor executor,
-      @GerritInstanceId String instanceId) {
+      @CacheExecutor ScheduledExecutorService executor,
+      @GerritInstanceId String instanceId,
+      Configuration config) {
     this.forwarders = forwarders;
     this.executor = executor;
     this.instanceId = instanceId;
+    this.batchWindowMsec = config.cache().projectListBatchWindowMsec();
+    this.batchThreshold = Math.max(1, config.cache().projectListBatchThreshold());
   }
 
   @Override
@@ -59,11 +74,50 @@ public class ProjectListUpdateHandler implements NewProjectCreatedListener, Proj
   }
 
   private void process(ProjectEvent event, boolean delete) {
-    if (!Context.isForwardedEvent()) {
+    if (Context.isForwardedEvent()) {
+      return;
+    }
+    if (batchWindowMsec <= 0) {
       executor.execute(
           new ProjectListUpdateTask(
               new ProjectListUpdateEvent(event.getProjectName(), delete, instanceId)));
+      return;
+    }
+
+    synchronized (pendingUpdates) {
+      boolean newBatch = pendingUpdates.isEmpty();
+      boolean newProject = pendingUpdates.put(event.getProjectName(), delete) == null;
+      if (newProject && pendingUpdates.size() == batchThreshold) {
+        // Do not wait for the end of the window for forwarding a full batch
+        executor.execute(this::flushUpdates);
+      } else if (newBatch) {
+        executor.schedule(this::flushUpdates, batchWindowMsec, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  private void flushUpdates() {
+    Map<String, Boolean> updates;
+    synchronized (pendingUpdates) {
+      updates = ImmutableMap.copyOf(pendingUpdates);
+      pendingUpdates.clear();
+    }
+    // Updates received before a full batch was flushed may exceed the threshold
+    for (List<String> projectNames : Iterables.partition(updates.keySet(), batchThreshold)) {
+      new ProjectListUpdateTask(newProjectListUpdateEvent(projectNames, updates)).run();
+    }
+  }
+
+  private ProjectListUpdateEvent newProjectListUpdateEvent(
+      List<String> projectNames, Map<String, Boolean> updates) {
+    if (projectNames.size() == 1) {
+      String projectName = projectNames.get(0);
+      return new ProjectListUpdateEvent(projectName, updates.get(projectName), instanceId);
     }
+    Map<Boolean, List<String>> projectsByRemoval =
+        projectNames.stream().collect(Collectors.partitioningBy(updates::get));
+    return ProjectListUpdateEvent.forProjects(
+        projectsByRemoval.get(false), projectsByRemoval.get(true), instanceId);
   }
 
   class ProjectListUpdateTask extends ForwarderTask {
@@ -80,6 +134,11 @@ public class ProjectListUpdateHandler implements NewProjectCreatedListener, Proj
 
     @Override
     public String toString() {
+      if (projectListUpdateEvent.isBatch()) {
+        return String.format(
+            "Update project list in target instance: add %s, remove %s",
+            projectListUpdateEvent.addedProjects, projectListUpdateEvent.removedProjects);
+      }
       return String.format(
           "Update project list in target instance: %s '%s'",
           projectListUpdateEvent.remove ? "remove" : "add", projectListUpdateEvent.projectName);
@@ -50,6 +50,6 @@ public class ProjectUpdateEventSubscriber extends AbstractSubcriber {
 
   @Override
   protected Boolean shouldConsumeEvent(Event event) {
-    return projectsFilter.matches(((ProjectListUpdateEvent) event).projectName);
+    return ((ProjectListUpdateEvent) event).anyProjectMatches(projectsFilter::matches);
   }
 }
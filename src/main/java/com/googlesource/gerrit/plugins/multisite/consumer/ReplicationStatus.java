@@ -16,7 +16,11 @@ package com.googlesource.gerrit.plugins.multisite.consumer;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.Cache;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Striped;
+import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.events.LifecycleListener;
 import com.google.gerrit.extensions.events.ProjectDeletedListener;
@@ -35,23 +39,40 @@ import com.google.inject.name.Names;
 import com.googlesource.gerrit.plugins.multisite.Configuration;
 import com.googlesource.gerrit.plugins.multisite.ProjectVersionLogger;
 import com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 @Singleton
 public class ReplicationStatus implements LifecycleListener, ProjectDeletedListener {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
-  private final Map<String, Long> replicationStatusPerProject = new HashMap<>();
+  private static final Comparator<ProjectLag> HIGHEST_LAG_FIRST =
+      Comparator.comparingLong(ProjectLag::lag).reversed().thenComparing(ProjectLag::project);
+
+  private final Map<String, Long> replicationStatusPerProject = new ConcurrentHashMap<>();
+  private final NavigableSet<ProjectLag> lagIndex = new ConcurrentSkipListSet<>(HIGHEST_LAG_FIRST);
+  private final AtomicLong lagIndexVersion = new AtomicLong();
   static final String REPLICATION_STATUS = "replication_status";
+  private static final int CACHE_LOAD_BATCH_SIZE = 1000;
+  private static final int LAG_UPDATE_LOCK_STRIPES = 64;
 
   public static Module cacheModule(WorkQueue queue) {
     return new CacheModule() {
@@ -69,16 +90,26 @@ public class ReplicationStatus implements LifecycleListener, ProjectDeletedListe
     };
   }
 
-  private final Map<String, Long> localVersionPerProject = new HashMap<>();
+  private final Map<String, Long> localVersionPerProject = new ConcurrentHashMap<>();
   private final Cache<String, Long> cache;
   private final Optional<ProjectVersionRefUpdate> projectVersionRefUpdate;
   private final ProjectVersionLogger verLogger;
   private final ProjectCache projectCache;
   private final ScheduledExecutorService statusScheduler;
+  private final ScheduledExecutorService refreshExecutor;
+  // Not shared with the refresh passes, which would otherwise delay the updates of the events
+  private final ScheduledExecutorService updateExecutor;
+  private final Map<String, RefreshBackoff> refreshBackoffPerProject = new ConcurrentHashMap<>();
+  private final Set<String> pendingLagUpdates = ConcurrentHashMap.newKeySet();
+  // Serializes the updates of the same project, so that a slower one cannot overwrite a newer lag
+  private final Striped<Lock> lagUpdateLocks = Striped.lock(LAG_UPDATE_LOCK_STRIPES);
 
   private final Configuration config;
 
   private final MetricMaker metricMaker;
+  private final ReplicationStatusMetrics metrics;
+  // Lags not yet written to the persistent cache, empty for the projects removed
+  private final Map<String, Optional<Long>> pendingCacheUpdates = new ConcurrentHashMap<>();
 
   @Inject
   public ReplicationStatus(
@@ -87,15 +118,21 @@ public class ReplicationStatus implements LifecycleListener, ProjectDeletedListe
       ProjectVersionLogger verLogger,
       ProjectCache projectCache,
       @Named(REPLICATION_STATUS) ScheduledExecutorService statusScheduler,
+      @ReplicationLagRefreshExecutor ScheduledExecutorService refreshExecutor,
+      @ReplicationLagUpdateExecutor ScheduledExecutorService updateExecutor,
       Configuration config,
-      MetricMaker metricMaker) {
+      MetricMaker metricMaker,
+      ReplicationStatusMetrics metrics) {
     this.cache = cache;
     this.projectVersionRefUpdate = projectVersionRefUpdate;
     this.verLogger = verLogger;
     this.projectCache = projectCache;
     this.statusScheduler = statusScheduler;
+    this.refreshExecutor = refreshExecutor;
+    this.updateExecutor = updateExecutor;
     this.config = config;
     this.metricMaker = metricMaker;
+    this.metrics = metrics;
   }
 
   public Long getMaxLag() {
@@ -103,26 +140,60 @@ public class ReplicationStatus implements LifecycleListener, ProjectDeletedListe
   }
 
   public Long getMaxLagMillis() {
-    Collection<Long> lags = replicationStatusPerProject.values();
-    if (lags.isEmpty()) {
+    try {
+      return lagIndex.first().lag();
+    } catch (NoSuchElementException e) {
       return 0L;
     }
-    return Collections.max(lags);
   }
 
   public Map<String, Long> getReplicationLags(Integer limit) {
-    return replicationStatusPerProject.entrySet().stream()
-        .sorted((c1, c2) -> c2.getValue().compareTo(c1.getValue()))
+    return getReplicationLags(0, limit, "", Long.MIN_VALUE);
+  }
+
+  public Map<String, Long> getReplicationLags(
+      int offset, int limit, String projectPrefix, long minLag) {
+    return lagIndex.stream()
+        .takeWhile(projectLag -> projectLag.lag() >= minLag)
+        .filter(projectLag -> projectLag.project().startsWith(projectPrefix))
+        .skip(offset)
         .limit(limit)
         .collect(
             Collectors.toMap(
-                Map.Entry::getKey,
-                Map.Entry::getValue,
+                ProjectLag::project,
+                ProjectLag::lag,
                 (oldValue, newValue) -> oldValue,
                 LinkedHashMap::new));
   }
 
+  public void scheduleReplicationLagUpdate(Project.NameKey projectName) {
+    if (!pendingLagUpdates.add(projectName.get())) {
+      // The pending update has not started yet and reads the latest versions
+      return;
+    }
+    updateExecutor.execute(
+        () -> {
+          pendingLagUpdates.remove(projectName.get());
+          try {
+            updateReplicationLag(projectName);
+          } catch (RuntimeException e) {
+            logger.atWarning().withCause(e).log(
+                "Unable to update the replication lag of project %s", projectName);
+          }
+        });
+  }
+
   public void updateReplicationLag(Project.NameKey projectName) {
+    Lock lock = lagUpdateLocks.get(projectName.get());
+    lock.lock();
+    try {
+      doUpdateReplicationLag(projectName);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void doUpdateReplicationLag(Project.NameKey projectName) {
     Optional<Long> remoteVersion =
         projectVersionRefUpdate.flatMap(
             refUpdate -> refUpdate.getProjectRemoteVersion(projectName.get()));
@@ -153,9 +224,10 @@ public class ReplicationStatus implements LifecycleListener, ProjectDeletedListe
         projectVersionRefUpdate.get().getProjectLocalVersion(projectName.get());
 
     if (!localVersion.isPresent() && replicationStatusPerProject.containsKey(projectName.get())) {
-      cache.invalidate(projectName.get());
-      replicationStatusPerProject.remove(projectName.get());
+      persistLag(projectName.get(), Optional.empty());
+      putLag(projectName.get(), null);
       localVersionPerProject.remove(projectName.get());
+      refreshBackoffPerProject.remove(projectName.get());
       verLogger.logDeleted(projectName);
       logger.atFine().log("Removed project '%s' from replication lag metrics", projectName);
     }
@@ -167,21 +239,102 @@ public class ReplicationStatus implements LifecycleListener, ProjectDeletedListe
       if (replicationStatusPerProject.isEmpty()) {
         metricCallback.forceCreate("");
       } else {
-        replicationStatusPerProject.entrySet().stream()
-            .filter(e -> e.getValue() > 0)
+        // Only the worst projects, for keeping the cardinality of the metric bounded
+        lagIndex.stream()
+            .takeWhile(projectLag -> projectLag.lag() > 0)
+            .limit(config.replicationLagMetricMaxProjects())
             .forEach(
-                e ->
+                projectLag ->
                     metricCallback.set(
-                        SubscriberMetrics.sanitizeProjectName(e.getKey()), e.getValue()));
+                        SubscriberMetrics.sanitizeProjectName(projectLag.project()),
+                        projectLag.lag()));
         metricCallback.prune();
       }
     };
   }
 
+  @VisibleForTesting
+  Runnable replicationLagDistribution(
+      CallbackMetric1<String, Long> percentilesCallback,
+      CallbackMetric1<String, Long> bucketsCallback) {
+    return () -> {
+      // Highest lag first, negative lags of projects ahead of the global-refdb count as no lag
+      long[] lags =
+          lagIndex.stream().mapToLong(projectLag -> Math.max(0L, projectLag.lag())).toArray();
+      for (LagPercentile percentile : LagPercentile.values()) {
+        percentilesCallback.set(percentile.metricName(), percentile.of(lags));
+      }
+      long[] projectsPerBucket = new long[LagBucket.values().length];
+      for (long lag : lags) {
+        projectsPerBucket[LagBucket.of(lag).ordinal()]++;
+      }
+      for (LagBucket bucket : LagBucket.values()) {
+        bucketsCallback.set(bucket.metricName(), projectsPerBucket[bucket.ordinal()]);
+      }
+    };
+  }
+
   @VisibleForTesting
   public void doUpdateLag(Project.NameKey projectName, Long lag) {
-    cache.put(projectName.get(), lag);
-    replicationStatusPerProject.put(projectName.get(), lag);
+    persistLag(projectName.get(), Optional.of(lag));
+    putLag(projectName.get(), lag);
+    refreshBackoffPerProject.remove(projectName.get());
+  }
+
+  private void persistLag(String projectName, Optional<Long> lag) {
+    if (config.replicationStatusFlushInterval().isZero()) {
+      lag.ifPresentOrElse(
+          value -> cache.put(projectName, value), () -> cache.invalidate(projectName));
+      return;
+    }
+    pendingCacheUpdates.put(projectName, lag);
+  }
+
+  @VisibleForTesting
+  void flushReplicationLags() {
+    if (pendingCacheUpdates.isEmpty()) {
+      return;
+    }
+
+    long startNanos = System.nanoTime();
+    Map<String, Long> updatedLags = new HashMap<>();
+    Set<String> removedProjects = new HashSet<>();
+    for (String projectName : pendingCacheUpdates.keySet()) {
+      Optional<Long> lag = pendingCacheUpdates.remove(projectName);
+      if (lag != null) {
+        lag.ifPresentOrElse(
+            value -> updatedLags.put(projectName, value),
+            () -> removedProjects.add(projectName));
+      }
+    }
+    cache.putAll(updatedLags);
+    cache.invalidateAll(removedProjects);
+    metrics.recordCacheFlushLatency(System.nanoTime() - startNanos);
+    logger.atFine().log(
+        "Flushed %d replication lags and %d removals to the persistent cache",
+        updatedLags.size(), removedProjects.size());
+  }
+
+  private void putLag(String projectName, @Nullable Long lag) {
+    // Keyed atomic update: the lag index is kept consistent with the per-project lags
+    replicationStatusPerProject.compute(
+        projectName,
+        (project, previousLag) -> {
+          if (previousLag != null) {
+            lagIndex.remove(new ProjectLag(project, previousLag));
+          }
+          if (lag != null) {
+            lagIndex.add(new ProjectLag(project, lag));
+          }
+          if (!Objects.equals(previousLag, lag)) {
+            lagIndexVersion.incrementAndGet();
+          }
+          return lag;
+        });
+  }
+
+  public long getReplicationLagsVersion() {
+    return lagIndexVersion.get();
   }
 
   @VisibleForTesting
@@ -196,10 +349,27 @@ public class ReplicationStatus implements LifecycleListener, ProjectDeletedListe
 
   @Override
   public void start() {
-    loadAllFromCache();
+    // Do not hold the plugin start while the persisted lags are loaded
+    refreshExecutor.execute(this::loadAllFromCache);
 
     long replicationLagPollingInterval = config.replicationLagRefreshInterval().toMillis();
 
+    long cacheFlushInterval = config.replicationStatusFlushInterval().toMillis();
+    if (cacheFlushInterval > 0) {
+      refreshExecutor.scheduleAtFixedRate(
+          () -> {
+            try {
+              flushReplicationLags();
+            } catch (RuntimeException e) {
+              logger.atSevere().withCause(e).log(
+                  "Unable to flush the replication lags to the persistent cache");
+            }
+          },
+          cacheFlushInterval,
+          cacheFlushInterval,
+          TimeUnit.MILLISECONDS);
+    }
+
     if (replicationLagPollingInterval > 0) {
       statusScheduler.scheduleAtFixedRate(
           this::refreshProjectsWithLag,
@@ -212,20 +382,81 @@ public class ReplicationStatus implements LifecycleListener, ProjectDeletedListe
   @VisibleForTesting
   public void refreshProjectsWithLag() {
     logger.atFine().log("Refreshing projects version lags triggered ...");
-    replicationStatusPerProject.entrySet().stream()
-        .filter(entry -> entry.getValue() > 0)
-        .map(Map.Entry::getKey)
-        .map(Project::nameKey)
-        .forEach(this::updateReplicationLag);
+    long now = System.currentTimeMillis();
+    CompletableFuture<?>[] refreshes =
+        replicationStatusPerProject.entrySet().stream()
+            .filter(entry -> entry.getValue() > 0)
+            .map(Map.Entry::getKey)
+            .filter(projectName -> isRefreshDue(projectName, now))
+            .map(
+                projectName ->
+                    CompletableFuture.runAsync(
+                        () -> refreshProjectWithLag(projectName, now), refreshExecutor))
+            .toArray(CompletableFuture[]::new);
+    // Complete the pass before the next one is scheduled
+    CompletableFuture.allOf(refreshes).join();
+  }
+
+  private boolean isRefreshDue(String projectName, long now) {
+    RefreshBackoff backoff = refreshBackoffPerProject.get(projectName);
+    return backoff == null || backoff.nextRefreshMsec <= now;
+  }
+
+  private void refreshProjectWithLag(String projectName, long now) {
+    try {
+      updateReplicationLag(Project.nameKey(projectName));
+    } catch (RuntimeException e) {
+      logger.atWarning().withCause(e).log(
+          "Unable to refresh the replication lag of project %s", projectName);
+      return;
+    }
+
+    // Any change of the lag removes the backoff: back off only when nothing has changed
+    long refreshIntervalMsec = config.replicationLagRefreshInterval().toMillis();
+    long maxRefreshIntervalMsec =
+        Math.max(refreshIntervalMsec, config.replicationLagRefreshMaxInterval().toMillis());
+    refreshBackoffPerProject.compute(
+        projectName,
+        (project, backoff) -> {
+          long intervalMsec =
+              backoff == null
+                  ? refreshIntervalMsec
+                  : Math.min(backoff.intervalMsec * 2, maxRefreshIntervalMsec);
+          // Half a pass of slack absorbs the scheduling jitter of the passes
+          return new RefreshBackoff(intervalMsec, now + intervalMsec - refreshIntervalMsec / 2);
+        });
   }
 
   @Override
-  public void stop() {}
+  public void stop() {
+    flushReplicationLags();
+  }
 
   private void loadAllFromCache() {
-    Set<String> cachedProjects =
-        projectCache.all().stream().map(Project.NameKey::get).collect(Collectors.toSet());
-    replicationStatusPerProject.putAll(cache.getAllPresent(cachedProjects));
+    try {
+      int loadedLags = 0;
+      for (List<Project.NameKey> projects :
+          Iterables.partition(projectCache.all(), CACHE_LOAD_BATCH_SIZE)) {
+        Map<String, Long> cachedLags =
+            cache.getAllPresent(Lists.transform(projects, Project.NameKey::get));
+        // Lags computed since the start are more recent than the persisted ones
+        cachedLags.forEach(this::putLagIfAbsent);
+        loadedLags += cachedLags.size();
+      }
+      logger.atInfo().log("Loaded %d replication lags from the persistent cache", loadedLags);
+    } catch (RuntimeException e) {
+      logger.atSevere().withCause(e).log("Unable to load the replication lags from the cache");
+    }
+  }
+
+  private void putLagIfAbsent(String projectName, Long lag) {
+    replicationStatusPerProject.computeIfAbsent(
+        projectName,
+        project -> {
+          lagIndex.add(new ProjectLag(project, lag));
+          lagIndexVersion.incrementAndGet();
+          return lag;
+        });
   }
 
   @Override
@@ -236,4 +467,89 @@ public class ReplicationStatus implements LifecycleListener, ProjectDeletedListe
   public boolean replicationLagEnabled() {
     return config.replicationLagEnabled();
   }
+
+  private enum LagPercentile {
+    P50(50),
+    P90(90),
+    P99(99),
+    MAX(100);
+
+    private final int percentile;
+
+    LagPercentile(int percentile) {
+      this.percentile = percentile;
+    }
+
+    String metricName() {
+      return name().toLowerCase(Locale.US);
+    }
+
+    long of(long[] lagsHighestFirst) {
+      if (lagsHighestFirst.length == 0) {
+        return 0L;
+      }
+      // Nearest-rank percentile, counted from the highest lag
+      int rank = (int) Math.ceil(percentile / 100.0 * lagsHighestFirst.length);
+      return lagsHighestFirst[lagsHighestFirst.length - Math.max(rank, 1)];
+    }
+  }
+
+  private enum LagBucket {
+    NONE(0L),
+    LESS_THAN_1_SEC(TimeUnit.SECONDS.toMillis(1)),
+    LESS_THAN_10_SEC(TimeUnit.SECONDS.toMillis(10)),
+    LESS_THAN_1_MIN(TimeUnit.MINUTES.toMillis(1)),
+    LESS_THAN_10_MIN(TimeUnit.MINUTES.toMillis(10)),
+    OVER_10_MIN(Long.MAX_VALUE);
+
+    private final long upperBoundMsec;
+
+    LagBucket(long upperBoundMsec) {
+      this.upperBoundMsec = upperBoundMsec;
+    }
+
+    String metricName() {
+      return name().toLowerCase(Locale.US);
+    }
+
+    static LagBucket of(long lagMsec) {
+      if (lagMsec <= 0) {
+        return NONE;
+      }
+      for (LagBucket bucket : values()) {
+        if (lagMsec < bucket.upperBoundMsec) {
+          return bucket;
+        }
+      }
+      return OVER_10_MIN;
+    }
+  }
+
+  private static class RefreshBackoff {
+    private final long intervalMsec;
+    private final long nextRefreshMsec;
+
+    RefreshBackoff(long intervalMsec, long nextRefreshMsec) {
+      this.intervalMsec = intervalMsec;
+      this.nextRefreshMsec = nextRefreshMsec;
+    }
+  }
+
+  private static class ProjectLag {
+    private final String project;
+    private final long lag;
+
+    ProjectLag(String project, long lag) {
+      this.project = project;
+      this.lag = lag;
+    }
+
+    String project() {
+      return project;
+    }
+
+    long lag() {
+      return lag;
+    }
+  }
 }
@@ -0,0 +1,45 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.consumer;
+
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer1;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.MultiSiteMetrics;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class ReplicationStatusMetrics extends MultiSiteMetrics {
+  private static final String CACHE_FLUSH_LATENCY = "replication_status_cache_flush_latency";
+
+  private final Timer1<String> cacheFlushLatency;
+
+  @Inject
+  public ReplicationStatusMetrics(MetricMaker metricMaker) {
+    this.cacheFlushLatency =
+        metricMaker.newTimer(
+            "multi_site/replication_status/cache_flush_latency",
+            new Description("Time taken to flush the buffered replication lags to the cache")
+                .setCumulative()
+                .setUnit(Description.Units.MILLISECONDS),
+            stringField(CACHE_FLUSH_LATENCY, "Replication status cache flush latency"));
+  }
+
+  public void recordCacheFlushLatency(long flushLatencyNanos) {
+    cacheFlushLatency.record(CACHE_FLUSH_LATENCY, flushLatencyNanos, TimeUnit.NANOSECONDS);
+  }
+}
@@ -20,6 +20,7 @@ import com.google.gerrit.lifecycle.LifecycleModule;
 import com.google.gerrit.server.git.WorkQueue;
 import com.google.inject.Inject;
 import com.google.inject.Scopes;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class ReplicationStatusModule extends LifecycleModule {
 
@@ -34,6 +35,14 @@ public class ReplicationStatusModule extends LifecycleModule {
   protected void configure() {
     bind(ReplicationStatus.class).in(Scopes.SINGLETON);
     install(ReplicationStatus.cacheModule(workQueue));
+    bind(ScheduledExecutorService.class)
+        .annotatedWith(ReplicationLagRefreshExecutor.class)
+        .toProvider(ReplicationLagRefreshExecutorProvider.class);
+    listener().to(ReplicationLagRefreshExecutorProvider.class);
+    bind(ScheduledExecutorService.class)
+        .annotatedWith(ReplicationLagUpdateExecutor.class)
+        .toProvider(ReplicationLagUpdateExecutorProvider.class);
+    listener().to(ReplicationLagUpdateExecutorProvider.class);
     listener().to(ReplicationStatus.class);
     DynamicSet.bind(binder(), ProjectDeletedListener.class).to(ReplicationStatus.class);
   }
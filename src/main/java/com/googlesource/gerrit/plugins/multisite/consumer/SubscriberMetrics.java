@@ -44,6 +44,10 @@ public class SubscriberMetrics extends MultiSiteMetrics {
       "multi_site/subscriber/subscriber_replication_status/msec_behind";
   private static final String REPLICATION_LAG_MSEC_PROJECT =
       "multi_site/subscriber/subscriber_replication_status/msec_behind/per_project";
+  private static final String REPLICATION_LAG_MSEC_PERCENTILE =
+      "multi_site/subscriber/subscriber_replication_status/msec_behind/percentile";
+  private static final String REPLICATION_LAG_PROJECTS_PER_BUCKET =
+      "multi_site/subscriber/subscriber_replication_status/projects_per_lag_bucket";
 
   private final Counter1<String> subscriberSuccessCounter;
   private final Counter1<String> subscriberFailureCounter;
@@ -51,6 +55,10 @@ public class SubscriberMetrics extends MultiSiteMetrics {
   private static final Pattern isValidMetricNamePattern = Pattern.compile("[a-zA-Z0-9_-]");
   private static final Field<String> PROJECT_NAME =
       Field.ofString("project_name", Metadata.Builder::cacheName).build();
+  private static final Field<String> LAG_PERCENTILE =
+      Field.ofString("lag_percentile", Metadata.Builder::cacheName).build();
+  private static final Field<String> LAG_BUCKET =
+      Field.ofString("lag_bucket", Metadata.Builder::cacheName).build();
 
   @Inject
   public SubscriberMetrics(MetricMaker metricMaker, ReplicationStatus replicationStatus) {
@@ -94,6 +102,25 @@ public class SubscriberMetrics extends MultiSiteMetrics {
                   .setUnit(Description.Units.MILLISECONDS),
               PROJECT_NAME);
       metricMaker.newTrigger(metrics, replicationStatus.replicationLagMetricPerProject(metrics));
+
+      CallbackMetric1<String, Long> percentiles =
+          metricMaker.newCallbackMetric(
+              REPLICATION_LAG_MSEC_PERCENTILE,
+              Long.class,
+              new Description("Replication lag percentiles across projects (msec)")
+                  .setGauge()
+                  .setUnit(Description.Units.MILLISECONDS),
+              LAG_PERCENTILE);
+      CallbackMetric1<String, Long> buckets =
+          metricMaker.newCallbackMetric(
+              REPLICATION_LAG_PROJECTS_PER_BUCKET,
+              Long.class,
+              new Description("Number of projects per replication lag bucket")
+                  .setGauge()
+                  .setUnit("projects"),
+              LAG_BUCKET);
+      metricMaker.newTrigger(
+          percentiles, buckets, replicationStatus.replicationLagDistribution(percentiles, buckets));
     }
   }
 
@@ -143,7 +170,7 @@ public class SubscriberMetrics extends MultiSiteMetrics {
         || event instanceof ReplicationScheduledEvent
         || event instanceof RefUpdatedEvent) {
       ProjectEvent projectEvent = (ProjectEvent) event;
-      replicationStatus.updateReplicationLag(projectEvent.getProjectNameKey());
+      replicationStatus.scheduleReplicationLagUpdate(projectEvent.getProjectNameKey());
     } else if (event instanceof ProjectDeletionReplicationSucceededEvent) {
       ProjectDeletionReplicationSucceededEvent projectDeletion =
           (ProjectDeletionReplicationSucceededEvent) event;
@@ -14,17 +14,24 @@
 
 package com.googlesource.gerrit.plugins.multisite.event;
 
+import com.gerritforge.gerrit.eventbroker.publisher.StreamEventPublisher;
 import com.gerritforge.gerrit.eventbroker.publisher.StreamEventPublisherConfig;
 import com.gerritforge.gerrit.eventbroker.publisher.StreamEventPublisherModule;
 import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.extensions.events.ProjectDeletedListener;
 import com.google.gerrit.extensions.registration.DynamicSet;
 import com.google.gerrit.lifecycle.LifecycleModule;
+import com.google.gerrit.server.events.EventListener;
 import com.google.inject.Inject;
+import com.google.inject.Scopes;
 import com.google.inject.multibindings.OptionalBinder;
 import com.googlesource.gerrit.plugins.multisite.Configuration;
 import com.googlesource.gerrit.plugins.multisite.forwarder.events.EventTopic;
 import com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate;
 import com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdateImpl;
+import com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionUpdateExecutor;
+import com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionUpdateExecutorProvider;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class EventModule extends LifecycleModule {
   private final Configuration configuration;
@@ -42,7 +49,13 @@ public class EventModule extends LifecycleModule {
                 EventTopic.STREAM_EVENT_TOPIC.topic(configuration),
                 configuration.broker().getStreamEventPublishTimeout()));
 
-    install(new StreamEventPublisherModule());
+    if (configuration.event().hasPublishFilters()) {
+      // Wrapped by the filter rather than registered as a listener by StreamEventPublisherModule
+      bind(StreamEventPublisher.class).in(Scopes.SINGLETON);
+      DynamicSet.bind(binder(), EventListener.class).to(FilteredStreamEventPublisher.class);
+    } else {
+      install(new StreamEventPublisherModule());
+    }
 
     OptionalBinder<ProjectVersionRefUpdate> projectVersionRefUpdateBinder =
         OptionalBinder.newOptionalBinder(binder(), ProjectVersionRefUpdate.class);
@@ -50,7 +63,14 @@ public class EventModule extends LifecycleModule {
       if (configuration.replicationLagEnabled()) {
         DynamicSet.bind(binder(), GitBatchRefUpdateListener.class)
             .to(ProjectVersionRefUpdateImpl.class);
+        listener().to(ProjectVersionRefUpdateImpl.class);
+        DynamicSet.bind(binder(), ProjectDeletedListener.class)
+            .to(ProjectVersionRefUpdateImpl.class);
       }
+      bind(ScheduledExecutorService.class)
+          .annotatedWith(ProjectVersionUpdateExecutor.class)
+          .toProvider(ProjectVersionUpdateExecutorProvider.class);
+      listener().to(ProjectVersionUpdateExecutorProvider.class);
       projectVersionRefUpdateBinder.setBinding().to(ProjectVersionRefUpdateImpl.class);
     }
   }
@@ -0,0 +1,54 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.event;
+
+import com.gerritforge.gerrit.eventbroker.publisher.StreamEventPublisher;
+import com.google.gerrit.server.config.GerritInstanceId;
+import com.google.gerrit.server.events.Event;
+import com.google.gerrit.server.events.EventListener;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Objects;
+
+/** Publishes to the other sites the stream events accepted by the {@link StreamEventFilter}. */
+@Singleton
+class FilteredStreamEventPublisher implements EventListener {
+  private final StreamEventPublisher publisher;
+  private final StreamEventFilter filter;
+  private final StreamEventFilterMetrics metrics;
+  private final String instanceId;
+
+  @Inject
+  FilteredStreamEventPublisher(
+      StreamEventPublisher publisher,
+      StreamEventFilter filter,
+      StreamEventFilterMetrics metrics,
+      @GerritInstanceId String instanceId) {
+    this.publisher = publisher;
+    this.filter = filter;
+    this.metrics = metrics;
+    this.instanceId = instanceId;
+  }
+
+  @Override
+  public void onEvent(Event event) {
+    // Events received from the other sites are never published again, no need to filter them
+    if (Objects.equals(instanceId, event.instanceId) && !filter.shouldPublish(event)) {
+      metrics.incrementSuppressed(event.getType());
+      return;
+    }
+    publisher.onEvent(event);
+  }
+}
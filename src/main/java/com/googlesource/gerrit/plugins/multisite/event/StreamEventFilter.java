@@ -0,0 +1,90 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.event;
+
+import static java.util.stream.Collectors.joining;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.gerrit.server.events.Event;
+import com.google.gerrit.server.events.ProjectEvent;
+import com.google.gerrit.server.events.RefEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which of the stream events produced by this site are published to the other sites,
+ * according to the event types, project patterns and ref prefixes of the {@code event} section.
+ */
+@Singleton
+class StreamEventFilter {
+  private final ImmutableSet<String> publishTypes;
+  private final Pattern publishProjects;
+  private final ImmutableList<String> skipRefPrefixes;
+
+  @Inject
+  StreamEventFilter(Configuration cfg) {
+    Configuration.Event eventCfg = cfg.event();
+    this.publishTypes = ImmutableSet.copyOf(eventCfg.publishTypes());
+    this.publishProjects = compileProjectPatterns(eventCfg.publishProjects());
+    this.skipRefPrefixes = ImmutableList.copyOf(eventCfg.skipRefPrefixes());
+  }
+
+  boolean shouldPublish(Event event) {
+    if (!publishTypes.isEmpty() && !publishTypes.contains(event.getType())) {
+      return false;
+    }
+    if (publishProjects != null
+        && event instanceof ProjectEvent
+        && !publishProjects.matcher(((ProjectEvent) event).getProjectNameKey().get()).matches()) {
+      return false;
+    }
+    if (!skipRefPrefixes.isEmpty() && event instanceof RefEvent) {
+      String refName = ((RefEvent) event).getRefName();
+      for (String prefix : skipRefPrefixes) {
+        if (refName.startsWith(prefix)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compiles the project patterns into a single regular expression. Patterns follow the format of
+   * {@code projects.pattern}: a regular expression when starting with {@code ^}, a prefix when
+   * ending with {@code *}, an exact project name otherwise.
+   */
+  private static Pattern compileProjectPatterns(List<String> patterns) {
+    if (patterns.isEmpty()) {
+      return null;
+    }
+    return Pattern.compile(
+        patterns.stream().map(StreamEventFilter::toRegex).collect(joining("|", "(?:", ")")));
+  }
+
+  private static String toRegex(String pattern) {
+    if (pattern.startsWith("^")) {
+      return "(?:" + pattern + ")";
+    }
+    if (pattern.endsWith("*")) {
+      return Pattern.quote(pattern.substring(0, pattern.length() - 1)) + ".*";
+    }
+    return Pattern.quote(pattern);
+  }
+}
@@ -0,0 +1,41 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.event;
+
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.MultiSiteMetrics;
+
+@Singleton
+class StreamEventFilterMetrics extends MultiSiteMetrics {
+  private static final String EVENT_TYPE = "event_type";
+
+  private final Counter1<String> suppressedEventCounter;
+
+  @Inject
+  StreamEventFilterMetrics(MetricMaker metricMaker) {
+    this.suppressedEventCounter =
+        metricMaker.newCounter(
+            "multi_site/event/publish_filter/suppressed_counter",
+            rateDescription("events", "Number of stream events not published to the other sites"),
+            stringField(EVENT_TYPE, "Type of the stream event"));
+  }
+
+  void incrementSuppressed(String eventType) {
+    suppressedEventCounter.increment(eventType);
+  }
+}
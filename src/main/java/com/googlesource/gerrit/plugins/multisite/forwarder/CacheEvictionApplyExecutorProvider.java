@@ -0,0 +1,51 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.forwarder;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.ExecutorProvider;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+class CacheEvictionApplyExecutorProvider extends ExecutorProvider {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final long DRAIN_TIMEOUT_SEC = 30;
+
+  @Inject
+  CacheEvictionApplyExecutorProvider(WorkQueue workQueue) {
+    // A single thread keeps the normal-priority evictions in the order they were received
+    super(workQueue, 1, "Multi-Site-Cache-Eviction-Apply");
+  }
+
+  @Override
+  public void stop() {
+    ScheduledExecutorService executor = get();
+    super.stop();
+    // The queued evictions were already consumed from the broker and would otherwise be lost
+    try {
+      if (!executor.awaitTermination(DRAIN_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+        logger.atWarning().log(
+            "Stopped before applying all the queued cache evictions within %d seconds",
+            DRAIN_TIMEOUT_SEC);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.forwarder;
+
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer1;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.MultiSiteMetrics;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class CacheEvictionMetrics extends MultiSiteMetrics {
+  private static final String CACHE_NAME = "cache_name";
+  private static final String PRIORITY = "priority";
+
+  private final Counter1<String> staleEvictionCounter;
+  private final Counter1<String> sentEvictionCounter;
+  private final Counter1<String> receivedEvictionCounter;
+  private final Timer1<String> propagationLatency;
+  private final Timer1<String> publishLatency;
+  private final Timer1<String> applyLatency;
+
+  @Inject
+  public CacheEvictionMetrics(MetricMaker metricMaker) {
+    this.staleEvictionCounter =
+        metricMaker.newCounter(
+            "multi_site/cache/eviction/stale_eviction_counter",
+            rateDescription(
+                "evictions",
+                "Number of remote cache evictions older than one already applied from their site"),
+            stringField(CACHE_NAME, "Name of the cache"));
+    this.sentEvictionCounter =
+        metricMaker.newCounter(
+            "multi_site/cache/eviction/sent_counter",
+            rateDescription("evictions", "Number of cache evictions sent to the other sites"),
+            stringField(CACHE_NAME, "Name of the cache"));
+    this.receivedEvictionCounter =
+        metricMaker.newCounter(
+            "multi_site/cache/eviction/received_counter",
+            rateDescription("evictions", "Number of cache evictions received from the other sites"),
+            stringField(CACHE_NAME, "Name of the cache"));
+    this.propagationLatency =
+        metricMaker.newTimer(
+            "multi_site/cache/eviction/propagation_latency",
+            new Description(
+                    "Time between a cache eviction on the originating site and its processing"
+                        + " on this site")
+                .setCumulative()
+                .setUnit(Description.Units.MILLISECONDS),
+            stringField(CACHE_NAME, "Name of the cache"));
+    this.publishLatency =
+        metricMaker.newTimer(
+            "multi_site/cache/eviction/publish_latency",
+            new Description("Time between a cache eviction and its publishing to the other sites")
+                .setCumulative()
+                .setUnit(Description.Units.MILLISECONDS),
+            stringField(PRIORITY, "Priority class of the cache"));
+    this.applyLatency =
+        metricMaker.newTimer(
+            "multi_site/cache/eviction/apply_latency",
+            new Description(
+                    "Time between a cache eviction on the originating site and its processing"
+                        + " on this site, by priority class")
+                .setCumulative()
+                .setUnit(Description.Units.MILLISECONDS),
+            stringField(PRIORITY, "Priority class of the cache"));
+  }
+
+  public void incrementStaleEviction(String cacheName) {
+    staleEvictionCounter.increment(cacheName);
+  }
+
+  public void incrementSentEviction(String cacheName) {
+    sentEvictionCounter.increment(cacheName);
+  }
+
+  public void incrementReceivedEviction(String cacheName) {
+    receivedEvictionCounter.increment(cacheName);
+  }
+
+  public void recordPropagationLatency(String cacheName, long latencyMsec) {
+    propagationLatency.record(cacheName, latencyMsec, TimeUnit.MILLISECONDS);
+  }
+
+  public void recordPublishLatency(CacheEvictionPriority.Priority priority, long latencyMsec) {
+    publishLatency.record(priorityName(priority), latencyMsec, TimeUnit.MILLISECONDS);
+  }
+
+  public void recordApplyLatency(CacheEvictionPriority.Priority priority, long latencyMsec) {
+    applyLatency.record(priorityName(priority), latencyMsec, TimeUnit.MILLISECONDS);
+  }
+
+  private static String priorityName(CacheEvictionPriority.Priority priority) {
+    return priority.name().toLowerCase(Locale.US);
+  }
+}
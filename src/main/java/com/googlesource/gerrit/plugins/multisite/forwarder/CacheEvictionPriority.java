@@ -0,0 +1,60 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.forwarder;
+
+import com.google.common.base.Joiner;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Priority class of the evictions of a cache. Evictions of high-priority caches, typically the
+ * ones driving permission checks, bypass the batching and the queues shared with the other
+ * evictions both when published and when applied.
+ */
+@Singleton
+public class CacheEvictionPriority {
+  public enum Priority {
+    HIGH,
+    NORMAL
+  }
+
+  private final Pattern pattern;
+  // Cache names are few and fixed, and a new instance is created when the plugin is reloaded
+  private final Map<String, Priority> priorities = new ConcurrentHashMap<>();
+
+  @Inject
+  public CacheEvictionPriority(Configuration cfg) {
+    List<String> patterns = cfg.cache().highPriority();
+    this.pattern = patterns.isEmpty() ? null : Pattern.compile(Joiner.on("|").join(patterns));
+  }
+
+  /** Whether any cache is configured with a high priority. */
+  public boolean isEnabled() {
+    return pattern != null;
+  }
+
+  public Priority of(String cacheName) {
+    if (pattern == null) {
+      return Priority.NORMAL;
+    }
+    return priorities.computeIfAbsent(
+        cacheName, name -> pattern.matcher(name).matches() ? Priority.HIGH : Priority.NORMAL);
+  }
+}
@@ -0,0 +1,62 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.forwarder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Singleton;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Tracks the latest remote eviction applied to the entries of the local caches, per originating
+ * node. The eviction times are only ever compared with the ones stamped by the same node, hence
+ * never across the clocks of different sites: an eviction older than one already applied from the
+ * same node was delivered late and any entry loaded afterwards is already fresher than it.
+ */
+@Singleton
+public class CacheInvalidationTimes {
+  private static final long MAX_TRACKED_ENTRIES = 10_000;
+  private static final Duration TRACKING_WINDOW = Duration.ofMinutes(5);
+
+  private final Cache<List<Object>, Long> evictedOn =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_TRACKED_ENTRIES)
+          .expireAfterWrite(TRACKING_WINDOW)
+          .build();
+
+  public void recordEviction(
+      String originInstanceId, String cacheName, Object key, long evictedOnMsec) {
+    if (originInstanceId == null || evictedOnMsec <= 0) {
+      return;
+    }
+    evictedOn
+        .asMap()
+        .merge(ImmutableList.of(originInstanceId, cacheName, key), evictedOnMsec, Math::max);
+  }
+
+  public boolean isStaleEviction(
+      String originInstanceId, String cacheName, Object key, long evictedOnMsec) {
+    if (originInstanceId == null || evictedOnMsec <= 0) {
+      // Eviction without origin or timestamp, sent by an older version of the plugin
+      return false;
+    }
+    Long lastEviction =
+        evictedOn.getIfPresent(ImmutableList.of(originInstanceId, cacheName, key));
+    // Strictly older only: two changes within the same millisecond must both be applied
+    return lastEviction != null && evictedOnMsec < lastEviction;
+  }
+}
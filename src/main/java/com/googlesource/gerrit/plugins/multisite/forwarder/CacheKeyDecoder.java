@@ -0,0 +1,37 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.forwarder;
+
+import com.google.gerrit.extensions.annotations.ExtensionPoint;
+
+/**
+ * Decodes the key of a forwarded cache eviction into the key type of the target cache.
+ *
+ * <p>Plugins forwarding evictions of their own caches can bind an implementation exported with the
+ * name of the cache, using {@code Exports.named("my_cache")}. Caches without a registered decoder
+ * get their keys decoded as strings.
+ */
+@ExtensionPoint
+public interface CacheKeyDecoder {
+
+  /**
+   * Decode a cache key received from the broker.
+   *
+   * @param cacheKeyValue the key as deserialized from the eviction event, either its JSON string
+   *     representation or the structure parsed from it
+   * @return the key of the local cache entry
+   */
+  Object decode(Object cacheKeyValue);
+}
@@ -0,0 +1,112 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.forwarder;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.AccountGroup;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.registration.DynamicMap;
+import com.google.gerrit.server.events.EventGson;
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.cache.Constants;
+import java.util.Map;
+
+@Singleton
+public class CacheKeyDecoderRegistry {
+  private final Gson gson;
+  private final DynamicMap<CacheKeyDecoder> pluginDecoders;
+  private final ImmutableMap<String, CacheKeyDecoder> coreDecoders;
+  private final CacheKeyDecoder defaultDecoder;
+
+  @Inject
+  public CacheKeyDecoderRegistry(
+      @EventGson Gson gson, DynamicMap<CacheKeyDecoder> pluginDecoders) {
+    this.gson = gson;
+    this.pluginDecoders = pluginDecoders;
+    CacheKeyDecoder groupUuid = value -> AccountGroup.uuid(decodeUuid(value));
+    this.coreDecoders =
+        ImmutableMap.of(
+            Constants.ACCOUNTS,
+            value -> Account.id(decodeId(value)),
+            Constants.GROUPS,
+            value -> AccountGroup.id(decodeId(value)),
+            Constants.GROUPS_BYINCLUDE,
+            groupUuid,
+            Constants.GROUPS_MEMBERS,
+            groupUuid,
+            Constants.PROJECTS,
+            value -> Project.nameKey(nullToEmpty(value)),
+            Constants.PROJECT_LIST,
+            value -> gson.fromJson(nullToEmpty(value), Object.class));
+    this.defaultDecoder = this::decodeUntyped;
+  }
+
+  public Object decode(String cacheName, Object cacheKeyValue) {
+    return decoderFor(cacheName).decode(cacheKeyValue);
+  }
+
+  private CacheKeyDecoder decoderFor(String cacheName) {
+    CacheKeyDecoder decoder = coreDecoders.get(cacheName);
+    if (decoder != null) {
+      return decoder;
+    }
+    int dot = cacheName.indexOf('.');
+    if (dot > 0) {
+      decoder = pluginDecoders.get(cacheName.substring(0, dot), cacheName.substring(dot + 1));
+    }
+    return MoreObjects.firstNonNull(decoder, defaultDecoder);
+  }
+
+  private int decodeId(Object value) {
+    if (value instanceof Map) {
+      return ((Number) ((Map<?, ?>) value).get("id")).intValue();
+    }
+    return gson.fromJson(nullToEmpty(value), IdKey.class).id;
+  }
+
+  private String decodeUuid(Object value) {
+    if (value instanceof Map) {
+      return (String) ((Map<?, ?>) value).get("uuid");
+    }
+    return gson.fromJson(nullToEmpty(value), UuidKey.class).uuid;
+  }
+
+  private Object decodeUntyped(Object cacheKeyValue) {
+    if (cacheKeyValue instanceof String) {
+      return cacheKeyValue;
+    }
+    try {
+      return gson.fromJson(nullToEmpty(cacheKeyValue), String.class);
+    } catch (Exception e) {
+      return gson.fromJson(nullToEmpty(cacheKeyValue), Object.class);
+    }
+  }
+
+  private static String nullToEmpty(Object value) {
+    return MoreObjects.firstNonNull(value, "").toString().trim();
+  }
+
+  private static class IdKey {
+    int id;
+  }
+
+  private static class UuidKey {
+    String uuid;
+  }
+}
@@ -0,0 +1,113 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.forwarder;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Streams;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reloads in the background the hot entries of the caches listed in {@code cache.refreshAhead}
+ * after they have been evicted by a remote site, so that the next request does not pay for it.
+ */
+@Singleton
+public class CacheRefreshAhead {
+  private static final Logger log = LoggerFactory.getLogger(CacheRefreshAhead.class);
+
+  private final Set<String> refreshAheadCaches;
+  private final ScheduledExecutorService executor;
+  private final long reloadDelayMsec;
+  private final CacheRefreshAheadMetrics metrics;
+
+  @Inject
+  public CacheRefreshAhead(
+      Configuration config,
+      @CacheRefreshAheadExecutor ScheduledExecutorService executor,
+      CacheRefreshAheadMetrics metrics) {
+    this.refreshAheadCaches = config.cache().refreshAhead();
+    this.executor = executor;
+    this.reloadDelayMsec = config.cache().refreshAheadDelayMsec();
+    this.metrics = metrics;
+  }
+
+  /**
+   * Select the keys worth reloading once evicted. A key is considered hot when it is currently
+   * loaded in the local cache, meaning that it has been requested since its last eviction and has
+   * not expired; no separate tracking of the recent accesses is kept.
+   *
+   * @param cacheName the name of the cache
+   * @param cache the cache the keys are about to be evicted from
+   * @param keys the keys about to be evicted
+   * @return the hot keys, empty if refresh-ahead is not enabled for the cache
+   */
+  List<Object> hotKeys(String cacheName, Cache<?, ?> cache, Iterable<?> keys) {
+    if (!refreshAheadCaches.contains(cacheName) || !(cache instanceof LoadingCache)) {
+      return ImmutableList.of();
+    }
+    return Streams.stream(keys)
+        .filter(key -> key != null && cache.getIfPresent(key) != null)
+        .collect(toImmutableList());
+  }
+
+  /**
+   * Reload asynchronously the hot keys previously selected with {@link #hotKeys}, once the refs the
+   * remote eviction is based on have had the time to be replicated to this site.
+   *
+   * @param cacheName the name of the cache
+   * @param cache the cache to reload the keys into
+   * @param hotKeys the keys to reload
+   */
+  void reload(String cacheName, Cache<?, ?> cache, List<Object> hotKeys) {
+    if (hotKeys.isEmpty()) {
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    LoadingCache<Object, ?> loadingCache = (LoadingCache<Object, ?>) cache;
+    hotKeys.forEach(
+        key -> {
+          metrics.incrementReload(cacheName);
+          executor.schedule(
+              () -> reload(cacheName, loadingCache, key),
+              reloadDelayMsec,
+              TimeUnit.MILLISECONDS);
+        });
+  }
+
+  private void reload(String cacheName, LoadingCache<Object, ?> cache, Object key) {
+    if (cache.getIfPresent(key) != null) {
+      // A request reloaded it already
+      return;
+    }
+    try {
+      cache.get(key);
+      metrics.incrementReloaded(cacheName);
+    } catch (ExecutionException | RuntimeException e) {
+      log.warn("Unable to reload {}[{}] after remote eviction", cacheName, key, e);
+    }
+  }
+}
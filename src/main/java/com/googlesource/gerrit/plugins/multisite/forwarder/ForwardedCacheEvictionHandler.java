@@ -14,11 +14,16 @@
 
 package com.googlesource.gerrit.plugins.multisite.forwarder;
 
+import static java.util.stream.Collectors.toList;
+
 import com.google.common.cache.Cache;
+import com.google.common.collect.Streams;
 import com.google.gerrit.extensions.registration.DynamicMap;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.googlesource.gerrit.plugins.multisite.cache.Constants;
+import java.util.Collections;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,10 +37,23 @@ public class ForwardedCacheEvictionHandler {
   private static final Logger log = LoggerFactory.getLogger(ForwardedCacheEvictionHandler.class);
 
   private final DynamicMap<Cache<?, ?>> cacheMap;
+  private final CacheRefreshAhead refreshAhead;
+  private final CacheInvalidationTimes invalidationTimes;
+  private final CacheEvictionMetrics metrics;
+  private final CacheEvictionPriority priority;
 
   @Inject
-  public ForwardedCacheEvictionHandler(DynamicMap<Cache<?, ?>> cacheMap) {
+  public ForwardedCacheEvictionHandler(
+      DynamicMap<Cache<?, ?>> cacheMap,
+      CacheRefreshAhead refreshAhead,
+      CacheInvalidationTimes invalidationTimes,
+      CacheEvictionMetrics metrics,
+      CacheEvictionPriority priority) {
     this.cacheMap = cacheMap;
+    this.refreshAhead = refreshAhead;
+    this.invalidationTimes = invalidationTimes;
+    this.metrics = metrics;
+    this.priority = priority;
   }
 
   /**
@@ -46,22 +64,149 @@ public class ForwardedCacheEvictionHandler {
    * @throws CacheNotFoundException if cache does not exist
    */
   public void evict(CacheEntry entry) throws CacheNotFoundException {
-    Cache<?, ?> cache = cacheMap.get(entry.getPluginName(), entry.getCacheName());
-    if (cache == null) {
-      throw new CacheNotFoundException(entry.getPluginName(), entry.getCacheName());
-    }
+    evict(entry, null, 0);
+  }
+
+  /**
+   * Evict an entry from the cache of the local node unless a later eviction from the same remote
+   * node has already been applied, eviction will not be forwarded to the other node.
+   *
+   * @param entry the cache entry to evict
+   * @param originInstanceId the instance id of the remote node, null if unknown
+   * @param evictedOnMsec when the entry was evicted on the remote node, 0 if unknown
+   * @throws CacheNotFoundException if cache does not exist
+   */
+  public void evict(CacheEntry entry, String originInstanceId, long evictedOnMsec)
+      throws CacheNotFoundException {
+    Cache<?, ?> cache = getCache(entry);
+    recordReceivedEviction(entry.getCacheName(), evictedOnMsec);
     try {
       Context.setForwardedEvent(true);
       if (Constants.PROJECT_LIST.equals(entry.getCacheName())) {
-        // One key is holding the list of projects
-        cache.invalidateAll();
-        log.debug("Invalidated cache {}", entry.getCacheName());
+        // Kept up to date by the project list update events, without a full rebuild
+        log.debug("Ignored eviction of cache {}", entry.getCacheName());
+      } else if (isStaleEviction(
+          originInstanceId, entry.getCacheName(), entry.getKey(), evictedOnMsec)) {
+        log.debug("Skipped stale eviction of cache {}[{}]", entry.getCacheName(), entry.getKey());
       } else {
+        List<Object> hotKeys =
+            refreshAhead.hotKeys(
+                entry.getCacheName(), cache, Collections.singletonList(entry.getKey()));
         cache.invalidate(entry.getKey());
+        invalidationTimes.recordEviction(
+            originInstanceId, entry.getCacheName(), entry.getKey(), evictedOnMsec);
         log.debug("Invalidated cache {}[{}]", entry.getCacheName(), entry.getKey());
+        refreshAhead.reload(entry.getCacheName(), cache, hotKeys);
       }
     } finally {
       Context.unsetForwardedEvent();
     }
   }
+
+  /**
+   * Evict a set of entries from the cache of the local node with a single invalidation, eviction
+   * will not be forwarded to the other node.
+   *
+   * @param entry the cache to evict the entries from, its key is ignored
+   * @param keys the keys identifying the entries in the cache
+   * @throws CacheNotFoundException if cache does not exist
+   */
+  public void evictAll(CacheEntry entry, Iterable<?> keys) throws CacheNotFoundException {
+    evictAll(entry, keys, null, 0);
+  }
+
+  /**
+   * Evict a set of entries from the cache of the local node with a single invalidation, skipping
+   * the ones for which a later eviction from the same remote node has already been applied.
+   * Eviction will not be forwarded to the other node.
+   *
+   * @param entry the cache to evict the entries from, its key is ignored
+   * @param keys the keys identifying the entries in the cache
+   * @param originInstanceId the instance id of the remote node, null if unknown
+   * @param evictedOnMsec when the entries were evicted on the remote node, 0 if unknown
+   * @throws CacheNotFoundException if cache does not exist
+   */
+  public void evictAll(
+      CacheEntry entry, Iterable<?> keys, String originInstanceId, long evictedOnMsec)
+      throws CacheNotFoundException {
+    Cache<?, ?> cache = getCache(entry);
+    recordReceivedEviction(entry.getCacheName(), evictedOnMsec);
+    try {
+      Context.setForwardedEvent(true);
+      List<?> keysToEvict =
+          Streams.stream(keys)
+              .filter(
+                  key ->
+                      !isStaleEviction(originInstanceId, entry.getCacheName(), key, evictedOnMsec))
+              .collect(toList());
+      List<Object> hotKeys = refreshAhead.hotKeys(entry.getCacheName(), cache, keysToEvict);
+      cache.invalidateAll(keysToEvict);
+      keysToEvict.forEach(
+          key ->
+              invalidationTimes.recordEviction(
+                  originInstanceId, entry.getCacheName(), key, evictedOnMsec));
+      log.debug("Invalidated cache {}{}", entry.getCacheName(), keysToEvict);
+      refreshAhead.reload(entry.getCacheName(), cache, hotKeys);
+    } finally {
+      Context.unsetForwardedEvent();
+    }
+  }
+
+  /**
+   * Evict all the entries from the cache of the local node, eviction will not be forwarded to the
+   * other node.
+   *
+   * @param entry the cache to evict the entries from, its key is ignored
+   * @throws CacheNotFoundException if cache does not exist
+   */
+  public void evictAll(CacheEntry entry) throws CacheNotFoundException {
+    evictAll(entry, 0);
+  }
+
+  /**
+   * Evict all the entries from the cache of the local node, eviction will not be forwarded to the
+   * other node.
+   *
+   * @param entry the cache to evict the entries from, its key is ignored
+   * @param evictedOnMsec when the entries were evicted on the remote node, 0 if unknown
+   * @throws CacheNotFoundException if cache does not exist
+   */
+  public void evictAll(CacheEntry entry, long evictedOnMsec) throws CacheNotFoundException {
+    Cache<?, ?> cache = getCache(entry);
+    recordReceivedEviction(entry.getCacheName(), evictedOnMsec);
+    try {
+      Context.setForwardedEvent(true);
+      cache.invalidateAll();
+      log.debug("Invalidated cache {}", entry.getCacheName());
+    } finally {
+      Context.unsetForwardedEvent();
+    }
+  }
+
+  private void recordReceivedEviction(String cacheName, long evictedOnMsec) {
+    metrics.incrementReceivedEviction(cacheName);
+    if (evictedOnMsec > 0) {
+      // Clock skew between the sites can make the latency negative
+      long latencyMsec = Math.max(0, System.currentTimeMillis() - evictedOnMsec);
+      metrics.recordPropagationLatency(cacheName, latencyMsec);
+      metrics.recordApplyLatency(priority.of(cacheName), latencyMsec);
+    }
+  }
+
+  private boolean isStaleEviction(
+      String originInstanceId, String cacheName, Object key, long evictedOnMsec) {
+    if (invalidationTimes.isStaleEviction(originInstanceId, cacheName, key, evictedOnMsec)) {
+      metrics.incrementStaleEviction(cacheName);
+      return true;
+    }
+    return false;
+  }
+
+  private Cache<?, ?> getCache(CacheEntry entry) throws CacheNotFoundException {
+    Cache<?, ?> cache = cacheMap.get(entry.getPluginName(), entry.getCacheName());
+    if (cache == null) {
+      throw new CacheNotFoundException(entry.getPluginName(), entry.getCacheName());
+    }
+    return cache;
+  }
 }
@@ -14,12 +14,16 @@
 
 package com.googlesource.gerrit.plugins.multisite.forwarder;
 
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.google.common.collect.ImmutableSet;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.server.project.ProjectCache;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.googlesource.gerrit.plugins.multisite.forwarder.events.ProjectListUpdateEvent;
 import java.io.IOException;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +51,10 @@ public class ForwardedProjectListUpdateHandler {
    * @throws IOException
    */
   public void update(ProjectListUpdateEvent event) throws IOException {
+    if (event.isBatch()) {
+      updateAll(nameKeys(event.addedProjects), nameKeys(event.removedProjects));
+      return;
+    }
     Project.NameKey projectKey = Project.nameKey(event.projectName);
     try {
       Context.setForwardedEvent(true);
@@ -61,4 +69,28 @@ public class ForwardedProjectListUpdateHandler {
       Context.unsetForwardedEvent();
     }
   }
+
+  private void updateAll(ImmutableSet<Project.NameKey> added, ImmutableSet<Project.NameKey> removed)
+      throws IOException {
+    try {
+      Context.setForwardedEvent(true);
+      // The project cache serializes the updates of the project list with the local ones
+      for (Project.NameKey project : added) {
+        projectCache.onCreateProject(project);
+      }
+      for (Project.NameKey project : removed) {
+        projectCache.remove(project);
+      }
+      log.debug("Added {} and removed {} from project list", added, removed);
+    } finally {
+      Context.unsetForwardedEvent();
+    }
+  }
+
+  private static ImmutableSet<Project.NameKey> nameKeys(List<String> projectNames) {
+    if (projectNames == null) {
+      return ImmutableSet.of();
+    }
+    return projectNames.stream().map(Project::nameKey).collect(toImmutableSet());
+  }
 }
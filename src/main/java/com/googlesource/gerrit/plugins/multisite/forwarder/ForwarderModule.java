@@ -14,15 +14,32 @@
 
 package com.googlesource.gerrit.plugins.multisite.forwarder;
 
+import com.google.gerrit.extensions.registration.DynamicMap;
 import com.google.gerrit.extensions.registration.DynamicSet;
-import com.google.inject.AbstractModule;
+import com.google.gerrit.lifecycle.LifecycleModule;
+import java.util.concurrent.ScheduledExecutorService;
 
-public class ForwarderModule extends AbstractModule {
+public class ForwarderModule extends LifecycleModule {
 
   @Override
   protected void configure() {
     DynamicSet.setOf(binder(), CacheEvictionForwarder.class);
     DynamicSet.setOf(binder(), IndexEventForwarder.class);
     DynamicSet.setOf(binder(), ProjectListUpdateForwarder.class);
+    DynamicMap.mapOf(binder(), CacheKeyDecoder.class);
+
+    bind(ScheduledExecutorService.class)
+        .annotatedWith(CacheRefreshAheadExecutor.class)
+        .toProvider(CacheRefreshAheadExecutorProvider.class);
+    listener().to(CacheRefreshAheadExecutorProvider.class);
+    bind(ScheduledExecutorService.class)
+        .annotatedWith(CacheEvictionApplyExecutor.class)
+        .toProvider(CacheEvictionApplyExecutorProvider.class);
+    listener().to(CacheEvictionApplyExecutorProvider.class);
+    bind(ScheduledExecutorService.class)
+        .annotatedWith(ProjectListRebuildExecutor.class)
+        .toProvider(ProjectListRebuildExecutorProvider.class);
+    listener().to(ProjectListRebuildExecutorProvider.class);
+    listener().to(ProjectListRebuilder.class);
   }
 }
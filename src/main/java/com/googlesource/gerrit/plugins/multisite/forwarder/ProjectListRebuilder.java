@@ -0,0 +1,96 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.forwarder;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.extensions.registration.DynamicMap;
+import com.google.gerrit.server.project.ProjectCache;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import com.googlesource.gerrit.plugins.multisite.cache.Constants;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically rebuilds the project list. The list is otherwise maintained incrementally by the
+ * {@link ForwardedProjectListUpdateHandler}, the rebuild is a safety net for lost updates.
+ */
+@Singleton
+public class ProjectListRebuilder implements LifecycleListener {
+  private static final Logger log = LoggerFactory.getLogger(ProjectListRebuilder.class);
+
+  private final DynamicMap<Cache<?, ?>> cacheMap;
+  private final ProjectCache projectCache;
+  private final ScheduledExecutorService executor;
+  private final long rebuildIntervalMsec;
+  private ScheduledFuture<?> rebuildTask;
+
+  @Inject
+  ProjectListRebuilder(
+      DynamicMap<Cache<?, ?>> cacheMap,
+      ProjectCache projectCache,
+      @ProjectListRebuildExecutor ScheduledExecutorService executor,
+      Configuration config) {
+    this.cacheMap = cacheMap;
+    this.projectCache = projectCache;
+    this.executor = executor;
+    this.rebuildIntervalMsec = config.cache().projectListRebuildIntervalMsec();
+  }
+
+  @Override
+  public void start() {
+    if (rebuildIntervalMsec > 0) {
+      rebuildTask =
+          executor.scheduleAtFixedRate(
+              this::rebuild, rebuildIntervalMsec, rebuildIntervalMsec, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (rebuildTask != null) {
+      rebuildTask.cancel(false);
+      rebuildTask = null;
+    }
+  }
+
+  @VisibleForTesting
+  void rebuild() {
+    // Any exception thrown would cancel all the following rebuilds
+    try {
+      Cache<?, ?> projectList = cacheMap.get(Constants.GERRIT, Constants.PROJECT_LIST);
+      if (projectList == null) {
+        return;
+      }
+      try {
+        Context.setForwardedEvent(true);
+        projectList.invalidateAll();
+      } finally {
+        Context.unsetForwardedEvent();
+      }
+      // Reload it here rather than on the next request
+      int projects = projectCache.all().size();
+      log.debug("Rebuilt project list with {} projects", projects);
+    } catch (RuntimeException e) {
+      log.error("Unable to rebuild the project list", e);
+    }
+  }
+}
@@ -15,22 +15,42 @@
 package com.googlesource.gerrit.plugins.multisite.forwarder.events;
 
 import com.google.common.base.Objects;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 public class CacheEvictionEvent extends MultiSiteEvent {
   static final String TYPE = "cache-eviction";
 
   public String cacheName;
   public Object key;
+  public List<Object> keys;
+  public boolean allKeys;
+  public long evictedOn;
 
   public CacheEvictionEvent(String cacheName, Object key, String instanceId) {
     super(TYPE, instanceId);
     this.cacheName = cacheName;
     this.key = key;
+    this.evictedOn = System.currentTimeMillis();
+  }
+
+  public static CacheEvictionEvent forKeys(
+      String cacheName, Collection<?> keys, String instanceId) {
+    CacheEvictionEvent event = new CacheEvictionEvent(cacheName, null, instanceId);
+    event.keys = new ArrayList<>(keys);
+    return event;
+  }
+
+  public static CacheEvictionEvent forAllKeys(String cacheName, String instanceId) {
+    CacheEvictionEvent event = new CacheEvictionEvent(cacheName, null, instanceId);
+    event.allKeys = true;
+    return event;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(cacheName, key);
+    return Objects.hashCode(cacheName, key, keys, allKeys);
   }
 
   @Override
@@ -38,6 +58,9 @@ public class CacheEvictionEvent extends MultiSiteEvent {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     CacheEvictionEvent that = (CacheEvictionEvent) o;
-    return Objects.equal(cacheName, that.cacheName) && Objects.equal(key, that.key);
+    return Objects.equal(cacheName, that.cacheName)
+        && Objects.equal(key, that.key)
+        && Objects.equal(keys, that.keys)
+        && allKeys == that.allKeys;
   }
 }
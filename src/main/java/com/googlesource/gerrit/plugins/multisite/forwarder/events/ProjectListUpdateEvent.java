@@ -15,12 +15,19 @@
 package com.googlesource.gerrit.plugins.multisite.forwarder.events;
 
 import com.google.common.base.Objects;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public class ProjectListUpdateEvent extends MultiSiteEvent {
   static final String TYPE = "project-list-update";
 
   public String projectName;
   public boolean remove;
+  public List<String> addedProjects;
+  public List<String> removedProjects;
 
   public ProjectListUpdateEvent(String projectName, boolean remove, String instanceId) {
     super(TYPE, instanceId);
@@ -28,9 +35,59 @@ public class ProjectListUpdateEvent extends MultiSiteEvent {
     this.remove = remove;
   }
 
+  public static ProjectListUpdateEvent forProjects(
+      Collection<String> addedProjects, Collection<String> removedProjects, String instanceId) {
+    ProjectListUpdateEvent event = new ProjectListUpdateEvent(null, false, instanceId);
+    event.addedProjects = new ArrayList<>(addedProjects);
+    event.removedProjects = new ArrayList<>(removedProjects);
+    return event;
+  }
+
+  public boolean isBatch() {
+    return addedProjects != null || removedProjects != null;
+  }
+
+  /**
+   * Check whether the event updates any project matching the filter.
+   *
+   * @param filter the projects to look for
+   * @return true if any added or removed project matches the filter
+   */
+  public boolean anyProjectMatches(Predicate<String> filter) {
+    if (!isBatch()) {
+      return filter.test(projectName);
+    }
+    return (addedProjects != null && addedProjects.stream().anyMatch(filter))
+        || (removedProjects != null && removedProjects.stream().anyMatch(filter));
+  }
+
+  /**
+   * Copy the event keeping only the projects matching the filter, this event is left unchanged.
+   *
+   * @param filter the projects to keep
+   * @return this event if it is not a batch, a filtered copy otherwise
+   */
+  public ProjectListUpdateEvent filterProjects(Predicate<String> filter) {
+    if (!isBatch()) {
+      return this;
+    }
+    ProjectListUpdateEvent event = new ProjectListUpdateEvent(null, false, instanceId);
+    event.eventCreatedOn = eventCreatedOn;
+    event.addedProjects = filter(addedProjects, filter);
+    event.removedProjects = filter(removedProjects, filter);
+    return event;
+  }
+
+  private static List<String> filter(List<String> projects, Predicate<String> filter) {
+    if (projects == null) {
+      return null;
+    }
+    return projects.stream().filter(filter).collect(Collectors.toList());
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hashCode(projectName, remove);
+    return Objects.hashCode(projectName, remove, addedProjects, removedProjects);
   }
 
   @Override
@@ -38,6 +95,9 @@ public class ProjectListUpdateEvent extends MultiSiteEvent {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     ProjectListUpdateEvent that = (ProjectListUpdateEvent) o;
-    return remove == that.remove && Objects.equal(projectName, that.projectName);
+    return remove == that.remove
+        && Objects.equal(projectName, that.projectName)
+        && Objects.equal(addedProjects, that.addedProjects)
+        && Objects.equal(removedProjects, that.removedProjects);
   }
 }
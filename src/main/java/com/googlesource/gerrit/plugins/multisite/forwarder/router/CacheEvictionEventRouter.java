@@ -14,27 +14,108 @@
 
 package com.googlesource.gerrit.plugins.multisite.forwarder.router;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
 import com.google.inject.Inject;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import com.googlesource.gerrit.plugins.multisite.consumer.SubscriberMetrics;
 import com.googlesource.gerrit.plugins.multisite.forwarder.CacheEntry;
-import com.googlesource.gerrit.plugins.multisite.forwarder.CacheKeyJsonParser;
+import com.googlesource.gerrit.plugins.multisite.forwarder.CacheEvictionApplyExecutor;
+import com.googlesource.gerrit.plugins.multisite.forwarder.CacheEvictionPriority;
+import com.googlesource.gerrit.plugins.multisite.forwarder.CacheKeyDecoderRegistry;
 import com.googlesource.gerrit.plugins.multisite.forwarder.CacheNotFoundException;
 import com.googlesource.gerrit.plugins.multisite.forwarder.ForwardedCacheEvictionHandler;
 import com.googlesource.gerrit.plugins.multisite.forwarder.events.CacheEvictionEvent;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 
 public class CacheEvictionEventRouter implements ForwardedEventRouter<CacheEvictionEvent> {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
   private final ForwardedCacheEvictionHandler cacheEvictionHanlder;
-  private final CacheKeyJsonParser gsonParser;
+  private final CacheKeyDecoderRegistry keyDecoders;
+  private final CacheEvictionPriority priority;
+  private final ScheduledExecutorService applyExecutor;
+  private final SubscriberMetrics subscriberMetrics;
+  // Normal-priority evictions that can be waiting for the apply executor
+  private final Semaphore queueSlots;
 
   @Inject
   public CacheEvictionEventRouter(
-      ForwardedCacheEvictionHandler cacheEvictionHanlder, CacheKeyJsonParser gsonParser) {
+      ForwardedCacheEvictionHandler cacheEvictionHanlder,
+      CacheKeyDecoderRegistry keyDecoders,
+      CacheEvictionPriority priority,
+      @CacheEvictionApplyExecutor ScheduledExecutorService applyExecutor,
+      SubscriberMetrics subscriberMetrics,
+      Configuration config) {
     this.cacheEvictionHanlder = cacheEvictionHanlder;
-    this.gsonParser = gsonParser;
+    this.keyDecoders = keyDecoders;
+    this.priority = priority;
+    this.applyExecutor = applyExecutor;
+    this.subscriberMetrics = subscriberMetrics;
+    this.queueSlots = new Semaphore(Math.max(1, config.cache().normalPriorityQueueSize()));
   }
 
   @Override
   public void route(CacheEvictionEvent cacheEvictionEvent) throws CacheNotFoundException {
-    Object parsedKey = gsonParser.from(cacheEvictionEvent.cacheName, cacheEvictionEvent.key);
-    cacheEvictionHanlder.evict(CacheEntry.from(cacheEvictionEvent.cacheName, parsedKey));
+    if (!priority.isEnabled()
+        || priority.of(cacheEvictionEvent.cacheName) == CacheEvictionPriority.Priority.HIGH) {
+      apply(cacheEvictionEvent);
+      return;
+    }
+
+    // Keeps the consumer free to apply the high-priority evictions received meanwhile, unless the
+    // queue is full: the consumer then waits rather than queuing evictions without bounds
+    queueSlots.acquireUninterruptibly();
+    try {
+      applyExecutor.execute(
+          () -> {
+            try {
+              applyInBackground(cacheEvictionEvent);
+            } finally {
+              queueSlots.release();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      // The plugin is stopping
+      queueSlots.release();
+      apply(cacheEvictionEvent);
+    }
+  }
+
+  private void applyInBackground(CacheEvictionEvent cacheEvictionEvent) {
+    try {
+      apply(cacheEvictionEvent);
+    } catch (CacheNotFoundException | RuntimeException e) {
+      // Already counted as consumed, as the subscriber does not wait for the eviction
+      logger.atSevere().withCause(e).log("Cannot handle message '%s'", cacheEvictionEvent);
+      subscriberMetrics.incrementSubscriberFailedToConsumeMessage();
+    }
+  }
+
+  private void apply(CacheEvictionEvent cacheEvictionEvent) throws CacheNotFoundException {
+    if (cacheEvictionEvent.allKeys) {
+      cacheEvictionHanlder.evictAll(
+          CacheEntry.from(cacheEvictionEvent.cacheName, null), cacheEvictionEvent.evictedOn);
+      return;
+    }
+    if (cacheEvictionEvent.keys != null) {
+      ImmutableList<Object> parsedKeys =
+          cacheEvictionEvent.keys.stream()
+              .map(k -> keyDecoders.decode(cacheEvictionEvent.cacheName, k))
+              .collect(ImmutableList.toImmutableList());
+      cacheEvictionHanlder.evictAll(
+          CacheEntry.from(cacheEvictionEvent.cacheName, null),
+          parsedKeys,
+          cacheEvictionEvent.instanceId,
+          cacheEvictionEvent.evictedOn);
+      return;
+    }
+    Object parsedKey = keyDecoders.decode(cacheEvictionEvent.cacheName, cacheEvictionEvent.key);
+    cacheEvictionHanlder.evict(
+        CacheEntry.from(cacheEvictionEvent.cacheName, parsedKey),
+        cacheEvictionEvent.instanceId,
+        cacheEvictionEvent.evictedOn);
   }
 }
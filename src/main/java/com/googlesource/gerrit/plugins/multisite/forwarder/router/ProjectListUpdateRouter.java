@@ -14,6 +14,7 @@
 
 package com.googlesource.gerrit.plugins.multisite.forwarder.router;
 
+import com.gerritforge.gerrit.globalrefdb.validation.ProjectsFilter;
 import com.google.inject.Inject;
 import com.googlesource.gerrit.plugins.multisite.forwarder.ForwardedProjectListUpdateHandler;
 import com.googlesource.gerrit.plugins.multisite.forwarder.events.ProjectListUpdateEvent;
@@ -21,14 +22,18 @@ import java.io.IOException;
 
 public class ProjectListUpdateRouter implements ForwardedEventRouter<ProjectListUpdateEvent> {
   ForwardedProjectListUpdateHandler projectListUpdateHandler;
+  private final ProjectsFilter projectsFilter;
 
   @Inject
-  public ProjectListUpdateRouter(ForwardedProjectListUpdateHandler projectListUpdateHandler) {
+  public ProjectListUpdateRouter(
+      ForwardedProjectListUpdateHandler projectListUpdateHandler, ProjectsFilter projectsFilter) {
     this.projectListUpdateHandler = projectListUpdateHandler;
+    this.projectsFilter = projectsFilter;
   }
 
   @Override
   public void route(ProjectListUpdateEvent projectListUpdateEvent) throws IOException {
-    projectListUpdateHandler.update(projectListUpdateEvent);
+    // Batches may mix filtered and unfiltered projects, the consumed event is left untouched
+    projectListUpdateHandler.update(projectListUpdateEvent.filterProjects(projectsFilter::matches));
   }
 }
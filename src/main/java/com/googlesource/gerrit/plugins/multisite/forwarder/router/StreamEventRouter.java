@@ -15,25 +15,42 @@
 package com.googlesource.gerrit.plugins.multisite.forwarder.router;
 
 import com.google.gerrit.server.events.Event;
+import com.google.gerrit.server.events.RefUpdatedEvent;
 import com.google.gerrit.server.permissions.PermissionBackendException;
 import com.google.inject.Inject;
 import com.googlesource.gerrit.plugins.multisite.forwarder.ForwardedEventHandler;
+import com.googlesource.gerrit.plugins.multisite.validation.SharedRefDbNearCache;
 import com.googlesource.gerrit.plugins.replication.events.RefReplicationDoneEvent;
 import java.io.IOException;
+import java.util.Optional;
 
 public class StreamEventRouter implements ForwardedEventRouter<Event> {
   private final ForwardedEventHandler streamEventHandler;
   private final IndexEventRouter indexEventRouter;
+  private final Optional<SharedRefDbNearCache> sharedRefDbNearCache;
 
   @Inject
   public StreamEventRouter(
-      ForwardedEventHandler streamEventHandler, IndexEventRouter indexEventRouter) {
+      ForwardedEventHandler streamEventHandler,
+      IndexEventRouter indexEventRouter,
+      Optional<SharedRefDbNearCache> sharedRefDbNearCache) {
     this.streamEventHandler = streamEventHandler;
     this.indexEventRouter = indexEventRouter;
+    this.sharedRefDbNearCache = sharedRefDbNearCache;
   }
 
   @Override
   public void route(Event sourceEvent) throws PermissionBackendException, IOException {
+    if (sourceEvent instanceof RefUpdatedEvent) {
+      // Invalidate before dispatching, so that the replication filters triggered by this
+      // event are not served a stale global-refdb value
+      RefUpdatedEvent refUpdatedEvent = (RefUpdatedEvent) sourceEvent;
+      sharedRefDbNearCache.ifPresent(
+          nearCache ->
+              nearCache.invalidate(
+                  refUpdatedEvent.getProjectNameKey(), refUpdatedEvent.getRefName()));
+    }
+
     if (RefReplicationDoneEvent.TYPE.equals(sourceEvent.getType())) {
       /* TODO: We currently explicitly ignore the status and result of the replication
        * event because there isn't a reliable way to understand if the current node was
@@ -17,6 +17,7 @@ package com.googlesource.gerrit.plugins.multisite.http;
 import static com.google.gerrit.server.permissions.GlobalPermission.ADMINISTRATE_SERVER;
 
 import com.google.common.flogger.FluentLogger;
+import com.google.common.net.HttpHeaders;
 import com.google.gerrit.httpd.restapi.RestApiServlet;
 import com.google.gerrit.server.permissions.PermissionBackend;
 import com.google.gson.Gson;
@@ -35,12 +36,19 @@ import javax.servlet.http.HttpServletResponse;
 public class ReplicationStatusServlet extends HttpServlet {
   protected static final FluentLogger logger = FluentLogger.forEnclosingClass();
   private static final String LIMIT_RESULT_PARAMETER = "limit";
+  private static final String OFFSET_RESULT_PARAMETER = "offset";
+  private static final String PROJECT_PREFIX_PARAMETER = "prefix";
+  private static final String MIN_LAG_PARAMETER = "minLag";
   private static final long serialVersionUID = 1L;
   private static final Integer DEFAULT_LIMIT_RESULT_PARAMETER = 10;
+  private static final Integer DEFAULT_OFFSET_RESULT_PARAMETER = 0;
+  private static final Long DEFAULT_MIN_LAG_PARAMETER = Long.MIN_VALUE;
 
   private final Gson gson;
   private final ReplicationStatus replicationStatus;
   private final PermissionBackend permissionBackend;
+  // Distinguishes the ETags generated before and after a restart
+  private final long startTime = System.currentTimeMillis();
 
   @Inject
   ReplicationStatusServlet(
@@ -62,15 +70,51 @@ public class ReplicationStatusServlet extends HttpServlet {
       return;
     }
 
-    int limitResult =
-        Optional.ofNullable(httpServletRequest.getParameter(LIMIT_RESULT_PARAMETER))
-            .map(Integer::parseInt)
-            .orElse(DEFAULT_LIMIT_RESULT_PARAMETER);
+    int limitResult;
+    int offsetResult;
+    long minLag;
+    try {
+      limitResult =
+          Optional.ofNullable(httpServletRequest.getParameter(LIMIT_RESULT_PARAMETER))
+              .map(Integer::parseInt)
+              .orElse(DEFAULT_LIMIT_RESULT_PARAMETER);
+      offsetResult =
+          Optional.ofNullable(httpServletRequest.getParameter(OFFSET_RESULT_PARAMETER))
+              .map(Integer::parseInt)
+              .orElse(DEFAULT_OFFSET_RESULT_PARAMETER);
+      minLag =
+          Optional.ofNullable(httpServletRequest.getParameter(MIN_LAG_PARAMETER))
+              .map(Long::parseLong)
+              .orElse(DEFAULT_MIN_LAG_PARAMETER);
+      // Lags can be negative, when the local version is ahead of the remote one
+      if (limitResult < 0 || offsetResult < 0) {
+        throw new NumberFormatException("limit and offset must not be negative");
+      }
+    } catch (NumberFormatException e) {
+      setResponse(
+          httpServletResponse,
+          HttpServletResponse.SC_BAD_REQUEST,
+          gson.toJson(String.format("Invalid numeric parameter: %s", e.getMessage())));
+      return;
+    }
+    String projectPrefix =
+        Optional.ofNullable(httpServletRequest.getParameter(PROJECT_PREFIX_PARAMETER)).orElse("");
+
+    // The same query returns the same lags until any of them changes
+    String etag =
+        String.format("\"%x-%x\"", startTime, replicationStatus.getReplicationLagsVersion());
+    httpServletResponse.setHeader(HttpHeaders.ETAG, etag);
+    if (etag.equals(httpServletRequest.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+      httpServletResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
 
     setResponse(
         httpServletResponse,
         HttpServletResponse.SC_OK,
-        gson.toJson(replicationStatus.getReplicationLags(limitResult)));
+        gson.toJson(
+            replicationStatus.getReplicationLags(
+                offsetResult, limitResult, projectPrefix, minLag)));
   }
 
   static void setResponse(HttpServletResponse httpResponse, int statusCode, String value)
@@ -14,20 +14,14 @@
 
 package com.googlesource.gerrit.plugins.multisite.validation;
 
-import static com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate.MULTI_SITE_VERSIONING_REF;
-
 abstract class AbstractMultisiteReplicationFilter {
+  private final RefTrackingDecisionTable refTracking;
+
+  protected AbstractMultisiteReplicationFilter(RefTrackingDecisionTable refTracking) {
+    this.refTracking = refTracking;
+  }
 
-  /*
-   * Since ac43a5f94c773c9db7a73d44035961d69d13fa53 the 'refs/multi-site/version' is
-   * not updated anymore on the global-refdb; however, the values stored already
-   * on the global-refdb could get in the way and prevent replication from happening
-   * as expected.
-   *
-   * Exclude the 'refs/multi-site/version' from local vs. global refdb checking
-   * pretending that the global-refdb for that ref did not exist.
-   */
-  protected boolean shouldNotBeTrackedAnymoreOnGlobalRefDb(String ref) {
-    return MULTI_SITE_VERSIONING_REF.equals(ref);
+  protected boolean shouldNotBeTrackedOnGlobalRefDb(String projectName, String ref) {
+    return !refTracking.isTracked(projectName, ref);
   }
 }
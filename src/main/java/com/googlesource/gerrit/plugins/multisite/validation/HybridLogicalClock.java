@@ -0,0 +1,65 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Hybrid logical clock generating the multi-site project versions.
+ *
+ * <p>The versions stay expressed in milliseconds since the epoch, so that they remain comparable
+ * with the ones already stored in the repositories and in the global-refdb. The logical counter is
+ * folded into the millisecond: a version is never lower than the wall clock, always greater than
+ * any version previously generated or observed from the other sites, and a site whose clock lags
+ * behind keeps producing increasing versions instead of having them refused.
+ */
+@Singleton
+public class HybridLogicalClock {
+  private final LongSupplier wallClock;
+  private final AtomicLong lastVersion = new AtomicLong();
+
+  @Inject
+  public HybridLogicalClock() {
+    this(System::currentTimeMillis);
+  }
+
+  @VisibleForTesting
+  HybridLogicalClock(LongSupplier wallClock) {
+    this.wallClock = wallClock;
+  }
+
+  /**
+   * Generate a new version.
+   *
+   * @return a version greater than any previously generated or observed
+   */
+  public long tick() {
+    long wallTime = wallClock.getAsLong();
+    return lastVersion.updateAndGet(last -> Math.max(wallTime, last + 1));
+  }
+
+  /**
+   * Advance the clock past a version generated by another site.
+   *
+   * @param version the version observed
+   */
+  public void observe(long version) {
+    lastVersion.accumulateAndGet(version, Math::max);
+  }
+}
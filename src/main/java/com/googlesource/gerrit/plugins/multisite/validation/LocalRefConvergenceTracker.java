@@ -0,0 +1,196 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gerrit.common.Nullable;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Tracks, per project, how long the local refs found not up-to-date with the global-refdb take to
+ * be updated, and sizes the wait of the replication filters before re-checking them.
+ *
+ * <p>The wait is never longer than the configured {@code minWaitBeforeReloadLocalVersionMs} plus
+ * random {@code maxRandomWaitBeforeReloadLocalVersionMs}. Once enough samples are collected for a
+ * project, it is capped to the configured {@code adaptiveWaitPercentile} of the observed
+ * convergence times. The wait ends as soon as the local ref is updated, and a wait that times out
+ * is accounted as a convergence at the upper bound so that the wait grows back.
+ *
+ * <p>The samples are only kept for a bounded set of recently replicated projects.
+ */
+@Singleton
+public class LocalRefConvergenceTracker {
+  @VisibleForTesting static final int MIN_SAMPLES = 10;
+  private static final int MAX_SAMPLES = 100;
+  private static final long POLL_INTERVAL_MSEC = 50L;
+  private static final long MAX_TRACKED_PROJECTS = 2_000;
+  private static final Duration SAMPLES_TTL = Duration.ofHours(1);
+
+  public enum Filter {
+    PUSH("push"),
+    FETCH("fetch");
+
+    private final String metricName;
+
+    Filter(String metricName) {
+      this.metricName = metricName;
+    }
+
+    String metricName() {
+      return metricName;
+    }
+  }
+
+  private final Configuration.ReplicationFilter config;
+  private final ReplicationFilterMetrics metrics;
+  private final Cache<String, ConvergenceSamples> samplesByProject =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_TRACKED_PROJECTS)
+          .expireAfterAccess(SAMPLES_TTL)
+          .build();
+
+  @Inject
+  public LocalRefConvergenceTracker(Configuration config, ReplicationFilterMetrics metrics) {
+    this.config = config.replicationFilter();
+    this.metrics = metrics;
+  }
+
+  /**
+   * Get the maximum time to wait for a local ref to be updated before re-checking it.
+   *
+   * @param filter the replication filter
+   * @param projectName the project name
+   * @return the wait time in milliseconds
+   */
+  public long waitTimeMsec(Filter filter, String projectName) {
+    long fixedWaitMsec =
+        filter == Filter.PUSH
+            ? config.pushFilterRandomSleepTimeMs()
+            : config.fetchFilterRandomSleepTimeMs();
+    int percentile =
+        filter == Filter.PUSH
+            ? config.pushFilterAdaptiveWaitPercentile()
+            : config.fetchFilterAdaptiveWaitPercentile();
+
+    ConvergenceSamples samples = samplesByProject.getIfPresent(key(filter, projectName));
+    long adaptiveWaitMsec =
+        percentile > 0 && samples != null ? samples.percentile(percentile) : -1L;
+    if (adaptiveWaitMsec < 0 || adaptiveWaitMsec >= fixedWaitMsec) {
+      metrics.recordWait(filter.metricName, fixedWaitMsec, false);
+      return fixedWaitMsec;
+    }
+
+    metrics.recordWait(filter.metricName, adaptiveWaitMsec, true);
+    return adaptiveWaitMsec;
+  }
+
+  /**
+   * Wait for a local ref to be updated, up to the given wait time.
+   *
+   * @param filter the replication filter
+   * @param projectName the project name
+   * @param repository the local repository
+   * @param refName the ref name
+   * @param localObjectId the current value of the local ref, null if the ref does not exist
+   * @param waitTimeMsec the maximum time to wait
+   * @return true if the local ref has been updated within the wait time
+   * @throws IOException if the local ref cannot be read
+   * @throws InterruptedException if interrupted whilst waiting
+   */
+  public boolean awaitLocalRefUpdate(
+      Filter filter,
+      String projectName,
+      Repository repository,
+      String refName,
+      @Nullable ObjectId localObjectId,
+      long waitTimeMsec)
+      throws IOException, InterruptedException {
+    long startNanos = System.nanoTime();
+    while (true) {
+      long elapsedMsec = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      if (!Objects.equals(localObjectId, getObjectId(repository, refName))) {
+        recordConvergence(filter, projectName, elapsedMsec);
+        return true;
+      }
+
+      long remainingMsec = waitTimeMsec - elapsedMsec;
+      if (remainingMsec <= 0) {
+        // The replication of a ref not yet converged is discarded: account the timeout as a
+        // convergence at the upper bound, so that the wait grows back.
+        recordConvergence(filter, projectName, maxWaitTimeMsec(filter));
+        return false;
+      }
+      Thread.sleep(Math.min(POLL_INTERVAL_MSEC, remainingMsec));
+    }
+  }
+
+  private void recordConvergence(Filter filter, String projectName, long convergenceTimeMsec) {
+    metrics.recordLocalRefConvergenceTime(filter.metricName, convergenceTimeMsec);
+    samplesByProject
+        .asMap()
+        .computeIfAbsent(key(filter, projectName), k -> new ConvergenceSamples())
+        .add(convergenceTimeMsec);
+  }
+
+  private long maxWaitTimeMsec(Filter filter) {
+    return filter == Filter.PUSH
+        ? config.pushFilterMaxSleepTimeMs()
+        : config.fetchFilterMaxSleepTimeMs();
+  }
+
+  @Nullable
+  private static ObjectId getObjectId(Repository repository, String refName) throws IOException {
+    Ref ref = repository.exactRef(refName);
+    return ref == null ? null : ref.getObjectId();
+  }
+
+  private static String key(Filter filter, String projectName) {
+    return String.format("%s:%s", filter.metricName, projectName);
+  }
+
+  private static class ConvergenceSamples {
+    private final long[] samples = new long[MAX_SAMPLES];
+    private int count;
+    private int next;
+
+    synchronized void add(long sample) {
+      samples[next] = sample;
+      next = (next + 1) % MAX_SAMPLES;
+      count = Math.min(count + 1, MAX_SAMPLES);
+    }
+
+    synchronized long percentile(int percentile) {
+      if (count < MIN_SAMPLES) {
+        return -1L;
+      }
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(Math.min(percentile, 100) / 100.0 * count) - 1;
+      return sorted[Math.max(index, 0)];
+    }
+  }
+}
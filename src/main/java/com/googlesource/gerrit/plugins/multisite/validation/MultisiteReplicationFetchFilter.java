@@ -26,6 +26,7 @@ import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.googlesource.gerrit.plugins.multisite.Configuration;
+import com.googlesource.gerrit.plugins.multisite.validation.LocalRefConvergenceTracker.Filter;
 import com.googlesource.gerrit.plugins.replication.pull.ReplicationFetchFilter;
 import java.io.IOException;
 import java.util.Collections;
@@ -47,15 +48,29 @@ public class MultisiteReplicationFetchFilter extends AbstractMultisiteReplicatio
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
   private final SharedRefDatabaseWrapper sharedRefDb;
+  private final SharedRefDbReadCoalescer sharedRefDbReader;
+  private final SharedRefDbNearCache sharedRefDbNearCache;
+  private final LocalRefConvergenceTracker convergenceTracker;
+  private final NotUpToDateRefsCache notUpToDateRefs;
   private final GitRepositoryManager gitRepositoryManager;
   private Configuration config;
 
   @Inject
   public MultisiteReplicationFetchFilter(
       SharedRefDatabaseWrapper sharedRefDb,
+      SharedRefDbReadCoalescer sharedRefDbReader,
+      SharedRefDbNearCache sharedRefDbNearCache,
+      RefTrackingDecisionTable refTracking,
+      LocalRefConvergenceTracker convergenceTracker,
+      NotUpToDateRefsCache notUpToDateRefs,
       GitRepositoryManager gitRepositoryManager,
       Configuration config) {
+    super(refTracking);
     this.sharedRefDb = sharedRefDb;
+    this.sharedRefDbReader = sharedRefDbReader;
+    this.sharedRefDbNearCache = sharedRefDbNearCache;
+    this.convergenceTracker = convergenceTracker;
+    this.notUpToDateRefs = notUpToDateRefs;
     this.gitRepositoryManager = gitRepositoryManager;
     this.config = config;
   }
@@ -68,7 +83,7 @@ public class MultisiteReplicationFetchFilter extends AbstractMultisiteReplicatio
       return refs.stream()
           .filter(
               ref -> {
-                if (shouldNotBeTrackedAnymoreOnGlobalRefDb(ref)) {
+                if (shouldNotBeTrackedOnGlobalRefDb(projectName, ref)) {
                   return true;
                 }
                 Optional<ObjectId> localRefOid =
@@ -132,21 +147,30 @@ public class MultisiteReplicationFetchFilter extends AbstractMultisiteReplicatio
       String ref,
       boolean retryWithRandomSleep) {
     try {
+      Optional<Ref> localRef = Optional.ofNullable(refDb.exactRef(ref));
+      ObjectId localObjectId = localRef.map(Ref::getObjectId).orElse(null);
+      if (retryWithRandomSleep
+          && notUpToDateRefs.isNotUpToDate(Filter.FETCH, projectName, ref, localObjectId)) {
+        return Optional.empty();
+      }
+
       Optional<ObjectId> localRefObjectId =
-          Optional.ofNullable(refDb.exactRef(ref))
+          localRef
               .filter(
                   r ->
-                      sharedRefDb
-                          .get(Project.nameKey(projectName), r.getName(), String.class)
+                      getSharedRefValue(projectName, r.getName(), retryWithRandomSleep)
                           .map(sharedRefObjId -> r.getObjectId().getName().equals(sharedRefObjId))
                           .orElse(false))
               .map(Ref::getObjectId);
 
-      if (!localRefObjectId.isPresent() && retryWithRandomSleep) {
-        randomSleepForMitigatingConditionWhereLocalRefHaveJustBeenChanged(
-            projectName, localRefObjectId, ref);
-        localRefObjectId =
-            getLocalSha1IfEqualsToExistingGlobalRefDb(repository, projectName, refDb, ref, false);
+      if (!localRefObjectId.isPresent()) {
+        if (retryWithRandomSleep) {
+          waitForMitigatingConditionWhereLocalRefHaveJustBeenChanged(projectName, repository, ref);
+          localRefObjectId =
+              getLocalSha1IfEqualsToExistingGlobalRefDb(repository, projectName, refDb, ref, false);
+        } else {
+          notUpToDateRefs.put(Filter.FETCH, projectName, ref, localObjectId);
+        }
       }
 
       return localRefObjectId;
@@ -164,8 +188,19 @@ public class MultisiteReplicationFetchFilter extends AbstractMultisiteReplicatio
     }
   }
 
-  private void randomSleepForMitigatingConditionWhereLocalRefHaveJustBeenChanged(
-      String projectName, Optional<ObjectId> refObjectId, String ref) {
+  private Optional<String> getSharedRefValue(
+      String projectName, String refName, boolean useNearCache) {
+    Project.NameKey projectKey = Project.nameKey(projectName);
+    // The re-check always reads through to the global-refdb, bypassing the near-cache
+    return useNearCache
+        ? sharedRefDbNearCache.get(projectKey, refName)
+        : sharedRefDbReader.get(projectKey, refName);
+  }
+
+  private void waitForMitigatingConditionWhereLocalRefHaveJustBeenChanged(
+      String projectName, Repository repository, String ref) throws IOException {
+    Optional<ObjectId> refObjectId =
+        Optional.ofNullable(repository.exactRef(ref)).map(Ref::getObjectId);
     if (!config.replicationFilter().isFetchFilterRandomSleepEnabled()) {
       repLog.debug(
           "'{}' is not up-to-date for project '{}' [local='{}']. Random sleep is disabled,"
@@ -176,16 +211,17 @@ public class MultisiteReplicationFetchFilter extends AbstractMultisiteReplicatio
       return;
     }
 
-    int randomSleepTimeMsec = config.replicationFilter().fetchFilterRandomSleepTimeMs();
+    long waitTimeMsec = convergenceTracker.waitTimeMsec(Filter.FETCH, projectName);
     repLog.debug(
-        "'{}' is not up-to-date for project '{}' [local='{}']. Reload local ref in '{} ms' and"
-            + " re-check",
+        "'{}' is not up-to-date for project '{}' [local='{}']. Reload local ref within '{} ms'"
+            + " and re-check",
         ref,
         projectName,
         refObjectId,
-        randomSleepTimeMsec);
+        waitTimeMsec);
     try {
-      Thread.sleep(randomSleepTimeMsec);
+      convergenceTracker.awaitLocalRefUpdate(
+          Filter.FETCH, projectName, repository, ref, refObjectId.orElse(null), waitTimeMsec);
     } catch (InterruptedException ie) {
       String message =
           String.format("Error while waiting for next check for '%s', ref '%s'", projectName, ref);
@@ -15,7 +15,6 @@
 package com.googlesource.gerrit.plugins.multisite.validation;
 
 import com.gerritforge.gerrit.globalrefdb.GlobalRefDbLockException;
-import com.gerritforge.gerrit.globalrefdb.validation.SharedRefDatabaseWrapper;
 import com.google.common.base.Preconditions;
 import com.google.common.flogger.FluentLogger;
 import com.google.gerrit.entities.Project;
@@ -23,6 +22,7 @@ import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.googlesource.gerrit.plugins.multisite.Configuration;
+import com.googlesource.gerrit.plugins.multisite.validation.LocalRefConvergenceTracker.Filter;
 import com.googlesource.gerrit.plugins.replication.api.ReplicationPushFilter;
 import java.io.IOException;
 import java.util.Collections;
@@ -48,16 +48,27 @@ public class MultisiteReplicationPushFilter extends AbstractMultisiteReplication
   static final String REPLICATION_LOG_NAME = "replication_log";
   static final Logger repLog = LoggerFactory.getLogger(REPLICATION_LOG_NAME);
 
-  private final SharedRefDatabaseWrapper sharedRefDb;
+  private final SharedRefDbReadCoalescer sharedRefDbReader;
+  private final SharedRefDbNearCache sharedRefDbNearCache;
+  private final LocalRefConvergenceTracker convergenceTracker;
+  private final NotUpToDateRefsCache notUpToDateRefs;
   private final GitRepositoryManager gitRepositoryManager;
   private Configuration config;
 
   @Inject
   public MultisiteReplicationPushFilter(
-      SharedRefDatabaseWrapper sharedRefDb,
+      SharedRefDbReadCoalescer sharedRefDbReader,
+      SharedRefDbNearCache sharedRefDbNearCache,
+      RefTrackingDecisionTable refTracking,
+      LocalRefConvergenceTracker convergenceTracker,
+      NotUpToDateRefsCache notUpToDateRefs,
       GitRepositoryManager gitRepositoryManager,
       Configuration config) {
-    this.sharedRefDb = sharedRefDb;
+    super(refTracking);
+    this.sharedRefDbReader = sharedRefDbReader;
+    this.sharedRefDbNearCache = sharedRefDbNearCache;
+    this.convergenceTracker = convergenceTracker;
+    this.notUpToDateRefs = notUpToDateRefs;
     this.gitRepositoryManager = gitRepositoryManager;
     this.config = config;
   }
@@ -112,30 +123,40 @@ public class MultisiteReplicationPushFilter extends AbstractMultisiteReplication
 
   private Optional<RemoteRefUpdate> isUpToDateWithRetry(
       String projectName, Repository repository, RemoteRefUpdate refUpdate) {
-    if (shouldNotBeTrackedAnymoreOnGlobalRefDb(refUpdate.getSrcRef())) {
+    if (shouldNotBeTrackedOnGlobalRefDb(projectName, refUpdate.getSrcRef())) {
       return Optional.of(refUpdate);
     }
 
     String ref = refUpdate.getSrcRef();
+    if (notUpToDateRefs.isNotUpToDate(
+        Filter.PUSH, projectName, ref, refUpdate.getNewObjectId())) {
+      return Optional.empty();
+    }
+
     try {
-      if (sharedRefDb.isUpToDate(
+      if (sharedRefDbNearCache.isUpToDate(
           Project.nameKey(projectName),
           new ObjectIdRef.Unpeeled(Ref.Storage.NETWORK, ref, refUpdate.getNewObjectId()))) {
         return Optional.of(refUpdate);
       }
 
-      randomSleepForMitigatingConditionWhereLocalRefHaveJustBeenChanged(
-          projectName, refUpdate, ref);
+      waitForMitigatingConditionWhereLocalRefHaveJustBeenChanged(
+          projectName, repository, refUpdate, ref);
 
       ObjectId reloadedNewObjectId = getNotNullExactRef(repository, ref);
       RemoteRefUpdate refUpdateReloaded =
           newRemoteRefUpdateWithObjectId(repository, refUpdate, reloadedNewObjectId);
-      return sharedRefDb.isUpToDate(
-              Project.nameKey(projectName),
-              new ObjectIdRef.Unpeeled(
-                  Ref.Storage.NETWORK, ref, refUpdateReloaded.getNewObjectId()))
-          ? Optional.of(refUpdateReloaded)
-          : Optional.empty();
+      // The re-check always reads through to the global-refdb, bypassing the near-cache
+      if (sharedRefDbReader.isUpToDate(
+          Project.nameKey(projectName),
+          new ObjectIdRef.Unpeeled(
+              Ref.Storage.NETWORK, ref, refUpdateReloaded.getNewObjectId()))) {
+        return Optional.of(refUpdateReloaded);
+      }
+
+      notUpToDateRefs.put(Filter.PUSH, projectName, ref, refUpdate.getNewObjectId());
+      notUpToDateRefs.put(Filter.PUSH, projectName, ref, refUpdateReloaded.getNewObjectId());
+      return Optional.empty();
     } catch (GlobalRefDbLockException gle) {
       final String messageFmt = "%s is locked on shared-refdb and thus will NOT BE replicated";
       repLog.error(messageFmt, ref);
@@ -162,20 +183,22 @@ public class MultisiteReplicationPushFilter extends AbstractMultisiteReplication
         refUpdate.getExpectedOldObjectId());
   }
 
-  private void randomSleepForMitigatingConditionWhereLocalRefHaveJustBeenChanged(
-      String projectName, RemoteRefUpdate refUpdate, String ref) {
+  private void waitForMitigatingConditionWhereLocalRefHaveJustBeenChanged(
+      String projectName, Repository repository, RemoteRefUpdate refUpdate, String ref)
+      throws IOException {
     if (!config.replicationFilter().isPushFilterRandomSleepEnabled()) {
       return;
     }
 
-    int randomSleepTimeMsec = config.replicationFilter().pushFilterRandomSleepTimeMs();
+    long waitTimeMsec = convergenceTracker.waitTimeMsec(Filter.PUSH, projectName);
     repLog.debug(
         String.format(
-            "'%s' is not up-to-date for project '%s' [local='%s']. Reload local ref in '%d ms' and"
-                + " re-check",
-            ref, projectName, refUpdate.getNewObjectId(), randomSleepTimeMsec));
+            "'%s' is not up-to-date for project '%s' [local='%s']. Reload local ref within '%d ms'"
+                + " and re-check",
+            ref, projectName, refUpdate.getNewObjectId(), waitTimeMsec));
     try {
-      Thread.sleep(randomSleepTimeMsec);
+      convergenceTracker.awaitLocalRefUpdate(
+          Filter.PUSH, projectName, repository, ref, refUpdate.getNewObjectId(), waitTimeMsec);
     } catch (InterruptedException ie) {
       final String messageFmt = "Error while waiting for next check for '%s', ref '%s'";
       repLog.error(messageFmt, projectName, ref);
@@ -0,0 +1,95 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gerrit.common.Nullable;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import com.googlesource.gerrit.plugins.multisite.validation.LocalRefConvergenceTracker.Filter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Short-lived cache of the refs found not up-to-date with the global-refdb by the replication
+ * filters.
+ *
+ * <p>Entries are keyed by project, ref and local object id, so that a new local value of the ref
+ * is always checked again. Replication retries of the same ref and object id within {@code
+ * notUpToDateCacheTtlMs} get the same verdict without checking the global-refdb and without
+ * waiting.
+ */
+@Singleton
+public class NotUpToDateRefsCache {
+  private static final long MAX_SIZE = 10000L;
+
+  private final ReplicationFilterMetrics metrics;
+  private final Map<Filter, Cache<String, Boolean>> notUpToDateRefs = new EnumMap<>(Filter.class);
+
+  @Inject
+  public NotUpToDateRefsCache(Configuration config, ReplicationFilterMetrics metrics) {
+    this.metrics = metrics;
+    addCache(Filter.PUSH, config.replicationFilter().pushFilterNotUpToDateCacheTtlMs());
+    addCache(Filter.FETCH, config.replicationFilter().fetchFilterNotUpToDateCacheTtlMs());
+  }
+
+  /**
+   * Check if the ref has been recently found not up-to-date with the global-refdb.
+   *
+   * @param filter the replication filter
+   * @param projectName the project name
+   * @param refName the ref name
+   * @param objectId the local object id of the ref, null if the ref does not exist locally
+   * @return true if the ref has been found not up-to-date with the same object id
+   */
+  public boolean isNotUpToDate(
+      Filter filter, String projectName, String refName, @Nullable ObjectId objectId) {
+    Cache<String, Boolean> cache = notUpToDateRefs.get(filter);
+    if (cache == null || cache.getIfPresent(key(projectName, refName, objectId)) == null) {
+      return false;
+    }
+
+    metrics.incrementNotUpToDateCacheHit(filter.metricName());
+    return true;
+  }
+
+  public void put(Filter filter, String projectName, String refName, @Nullable ObjectId objectId) {
+    Cache<String, Boolean> cache = notUpToDateRefs.get(filter);
+    if (cache != null) {
+      cache.put(key(projectName, refName, objectId), Boolean.TRUE);
+    }
+  }
+
+  private void addCache(Filter filter, int ttlMsec) {
+    if (ttlMsec > 0) {
+      notUpToDateRefs.put(
+          filter,
+          CacheBuilder.newBuilder()
+              .maximumSize(MAX_SIZE)
+              .expireAfterWrite(ttlMsec, TimeUnit.MILLISECONDS)
+              .build());
+    }
+  }
+
+  private static String key(String projectName, String refName, @Nullable ObjectId objectId) {
+    return String.format(
+        "%s:%s:%s",
+        projectName, refName, objectId == null ? ObjectId.zeroId().getName() : objectId.getName());
+  }
+}
@@ -0,0 +1,42 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.MultiSiteMetrics;
+
+@Singleton
+public class ProjectVersionMetrics extends MultiSiteMetrics {
+  private static final String UPDATE_AVOIDED_COUNTER = "project_version_update_avoided_counter";
+
+  private final Counter1<String> updateAvoidedCounter;
+
+  @Inject
+  public ProjectVersionMetrics(MetricMaker metricMaker) {
+    this.updateAvoidedCounter =
+        metricMaker.newCounter(
+            "multi_site/project_version/update_avoided_counter",
+            rateDescription(
+                "updates", "Number of project version updates coalesced into a pending update"),
+            stringField(UPDATE_AVOIDED_COUNTER, "Project version update avoided count"));
+  }
+
+  public void incrementUpdateAvoided() {
+    updateAvoidedCounter.increment(UPDATE_AVOIDED_COUNTER);
+  }
+}
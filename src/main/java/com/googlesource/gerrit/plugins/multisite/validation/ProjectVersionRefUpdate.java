@@ -29,4 +29,6 @@ public interface ProjectVersionRefUpdate {
   Optional<Long> getProjectLocalVersion(String projectName);
 
   Optional<Long> getProjectRemoteVersion(String projectName);
+
+  long getCurrentGlobalVersionNumber();
 }
@@ -20,31 +20,43 @@ import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
 
 import com.gerritforge.gerrit.globalrefdb.GlobalRefDbSystemError;
 import com.gerritforge.gerrit.globalrefdb.validation.SharedRefDatabaseWrapper;
-import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.FluentLogger;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.entities.Project.NameKey;
 import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.extensions.events.ProjectDeletedListener;
 import com.google.gerrit.server.extensions.events.GitReferenceUpdated;
 import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.gerrit.server.update.context.RefUpdateContext;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
 import com.googlesource.gerrit.plugins.multisite.ProjectVersionLogger;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.Repository;
 
 @Singleton
 public class ProjectVersionRefUpdateImpl
-    implements GitBatchRefUpdateListener, ProjectVersionRefUpdate {
+    implements GitBatchRefUpdateListener,
+        ProjectDeletedListener,
+        ProjectVersionRefUpdate,
+        LifecycleListener {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
   private static final Set<RefUpdate.Result> SUCCESSFUL_RESULTS =
       ImmutableSet.of(RefUpdate.Result.NEW, RefUpdate.Result.FORCED, RefUpdate.Result.NO_CHANGE);
@@ -52,6 +64,14 @@ public class ProjectVersionRefUpdateImpl
   private final GitRepositoryManager gitRepositoryManager;
   private final GitReferenceUpdated gitReferenceUpdated;
   private final ProjectVersionLogger verLogger;
+  private final SharedRefDbNearCache sharedRefDbNearCache;
+  private final ScheduledExecutorService executor;
+  private final ProjectVersionMetrics metrics;
+  private final long updateIntervalMsec;
+  private final ConcurrentMap<String, Long> pendingVersions = new ConcurrentHashMap<>();
+  // Kept up to date by the local version writes and the ref-updated events of the version ref
+  private final ConcurrentMap<String, Optional<Long>> localVersions = new ConcurrentHashMap<>();
+  private final HybridLogicalClock clock;
 
   protected final SharedRefDatabaseWrapper sharedRefDb;
 
@@ -59,32 +79,97 @@ public class ProjectVersionRefUpdateImpl
   public ProjectVersionRefUpdateImpl(
       GitRepositoryManager gitRepositoryManager,
       SharedRefDatabaseWrapper sharedRefDb,
+      SharedRefDbNearCache sharedRefDbNearCache,
       GitReferenceUpdated gitReferenceUpdated,
-      ProjectVersionLogger verLogger) {
+      ProjectVersionLogger verLogger,
+      @ProjectVersionUpdateExecutor ScheduledExecutorService executor,
+      ProjectVersionMetrics metrics,
+      HybridLogicalClock clock,
+      Configuration config) {
     this.gitRepositoryManager = gitRepositoryManager;
     this.sharedRefDb = sharedRefDb;
+    this.sharedRefDbNearCache = sharedRefDbNearCache;
     this.gitReferenceUpdated = gitReferenceUpdated;
     this.verLogger = verLogger;
+    this.executor = executor;
+    this.metrics = metrics;
+    this.clock = clock;
+    this.updateIntervalMsec = config.projectVersionUpdateIntervalMsec();
   }
 
   @Override
-  public void onGitBatchRefUpdate(Event event) {
-    // Producer of the Event use RefUpdatedEvent to trigger the version update
-    updateProducerProjectVersionUpdate(event);
+  public void start() {}
+
+  @Override
+  public void stop() {
+    pendingVersions.keySet().forEach(this::flushPendingVersion);
   }
 
-  private void updateProducerProjectVersionUpdate(Event refUpdatedEvent) {
-    if (refUpdatedEvent.getRefNames().stream()
+  @Override
+  public void onProjectDeleted(ProjectDeletedListener.Event event) {
+    localVersions.remove(event.getProjectName());
+  }
+
+  @Override
+  public void onGitBatchRefUpdate(GitBatchRefUpdateListener.Event event) {
+    if (event.getRefNames().contains(MULTI_SITE_VERSIONING_REF)) {
+      // Written by this node or received through replication
+      Optional<Long> localVersion = readLocalVersion(event.getProjectName());
+      localVersions.put(event.getProjectName(), localVersion);
+      localVersion.ifPresent(clock::observe);
+    }
+
+    // Producer of the Event use RefUpdatedEvent to trigger the version update
+    if (event.getRefNames().stream()
         .allMatch(refName -> refName.equals(MULTI_SITE_VERSIONING_REF))) {
       logger.atFine().log(
           "Found a special ref name %s, skipping update for %s",
-          MULTI_SITE_VERSIONING_REF, refUpdatedEvent.getProjectName());
+          MULTI_SITE_VERSIONING_REF, event.getProjectName());
       return;
     }
 
+    String projectName = event.getProjectName();
+    long newVersion = getCurrentGlobalVersionNumber();
+    if (updateIntervalMsec <= 0) {
+      updateProducerProjectVersionUpdate(projectName, newVersion);
+      return;
+    }
+
+    AtomicBoolean alreadyPending = new AtomicBoolean();
+    pendingVersions.compute(
+        projectName,
+        (project, pendingVersion) -> {
+          if (pendingVersion == null) {
+            return newVersion;
+          }
+          alreadyPending.set(true);
+          return Math.max(pendingVersion, newVersion);
+        });
+    if (alreadyPending.get()) {
+      // The pending update will be written with the latest version
+      metrics.incrementUpdateAvoided();
+      return;
+    }
+    try {
+      executor.schedule(
+          () -> flushPendingVersion(projectName), updateIntervalMsec, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // The plugin is stopping, the pending updates can no longer be deferred
+      logger.atFine().log("Updating version of project %s without delay", projectName);
+      flushPendingVersion(projectName);
+    }
+  }
+
+  private void flushPendingVersion(String projectName) {
+    Long pendingVersion = pendingVersions.remove(projectName);
+    if (pendingVersion != null) {
+      updateProducerProjectVersionUpdate(projectName, pendingVersion);
+    }
+  }
+
+  private void updateProducerProjectVersionUpdate(String projectName, long newVersion) {
     try {
-      Project.NameKey projectNameKey = Project.nameKey(refUpdatedEvent.getProjectName());
-      long newVersion = getCurrentGlobalVersionNumber();
+      Project.NameKey projectNameKey = Project.nameKey(projectName);
 
       Optional<RefUpdate> newProjectVersionRefUpdate =
           updateLocalProjectVersion(projectNameKey, newVersion);
@@ -98,8 +183,7 @@ public class ProjectVersionRefUpdateImpl
       }
     } catch (LocalProjectVersionUpdateException | SharedProjectVersionUpdateException e) {
       logger.atSevere().withCause(e).log(
-          "Issue encountered when updating version for project %s",
-          refUpdatedEvent.getProjectName());
+          "Issue encountered when updating version for project %s", projectName);
     }
   }
 
@@ -126,6 +210,7 @@ public class ProjectVersionRefUpdateImpl
         sharedRefDb
             .get(projectNameKey, MULTI_SITE_VERSIONING_VALUE_REF, String.class)
             .map(Long::parseLong);
+    sharedVersion.ifPresent(clock::observe);
 
     try {
       if (sharedVersion.isPresent() && sharedVersion.get() >= newVersion) {
@@ -140,6 +225,7 @@ public class ProjectVersionRefUpdateImpl
           "Updating shared project %s value to %d", projectNameKey.get(), newVersion);
 
       updateProjectVersionValue(projectNameKey, newVersion, sharedVersion);
+      sharedRefDbNearCache.invalidate(projectNameKey, MULTI_SITE_VERSIONING_VALUE_REF);
       return true;
     } catch (GlobalRefDbSystemError refDbSystemError) {
       String message =
@@ -180,14 +266,30 @@ public class ProjectVersionRefUpdateImpl
    */
   @Override
   public Optional<Long> getProjectLocalVersion(String projectName) {
+    Optional<Long> localVersion = localVersions.get(projectName);
+    if (localVersion != null) {
+      return localVersion;
+    }
+
+    // Loaded on first use, unless a ref-updated event has meanwhile recorded a newer version
+    localVersion = readLocalVersion(projectName);
+    Optional<Long> recordedVersion = localVersions.putIfAbsent(projectName, localVersion);
+    return recordedVersion != null ? recordedVersion : localVersion;
+  }
+
+  private Optional<Long> readLocalVersion(String projectName) {
     try (Repository repository =
         gitRepositoryManager.openRepository(Project.NameKey.parse(projectName))) {
-      Optional<Long> blob = longBlobParse(repository, MULTI_SITE_VERSIONING_REF);
-      if (blob.isPresent()) {
-        Long repoVersion = blob.get();
-        logger.atFine().log("Local project '%s' has version %d", projectName, repoVersion);
-        return Optional.of(repoVersion);
+      Ref ref = repository.exactRef(MULTI_SITE_VERSIONING_REF);
+      if (ref == null) {
+        return Optional.empty();
       }
+
+      Optional<Long> blob = longBlobParse(repository, ref);
+      blob.ifPresent(
+          repoVersion ->
+              logger.atFine().log("Local project '%s' has version %d", projectName, repoVersion));
+      return blob;
     } catch (RepositoryNotFoundException re) {
       logger.atFine().log("Project '%s' not found", projectName);
     } catch (IOException e) {
@@ -196,20 +298,16 @@ public class ProjectVersionRefUpdateImpl
     return Optional.empty();
   }
 
-  private Optional<Long> longBlobParse(Repository repo, String refName) throws IOException {
-    return Optional.ofNullable(repo.exactRef(refName))
-        .map(
-            (ref) -> {
-              try {
-                return Long.parseLong(
-                    new String(repo.open(ref.getObjectId()).getBytes(), StandardCharsets.UTF_8));
-              } catch (IOException e) {
-                logger.atSevere().withCause(e).log(
-                    "Unable to extract long BLOB from %s:%s", repo.getDirectory(), ref);
-                return null;
-              }
-            })
-        .filter(Predicates.notNull());
+  private Optional<Long> longBlobParse(Repository repo, Ref ref) {
+    try {
+      return Optional.of(
+          Long.parseLong(
+              new String(repo.open(ref.getObjectId()).getBytes(), StandardCharsets.UTF_8)));
+    } catch (IOException e) {
+      logger.atSevere().withCause(e).log(
+          "Unable to extract long BLOB from %s:%s", repo.getDirectory(), ref);
+      return Optional.empty();
+    }
   }
 
   /* (non-Javadoc)
@@ -218,9 +316,11 @@ public class ProjectVersionRefUpdateImpl
   @Override
   public Optional<Long> getProjectRemoteVersion(String projectName) {
     Optional<String> globalVersion =
-        sharedRefDb.get(
-            Project.NameKey.parse(projectName), MULTI_SITE_VERSIONING_VALUE_REF, String.class);
-    return globalVersion.flatMap(longString -> getLongValueOf(longString));
+        sharedRefDbNearCache.get(
+            Project.NameKey.parse(projectName), MULTI_SITE_VERSIONING_VALUE_REF);
+    Optional<Long> remoteVersion = globalVersion.flatMap(this::getLongValueOf);
+    remoteVersion.ifPresent(clock::observe);
+    return remoteVersion;
   }
 
   private Optional<Long> getLongValueOf(String longString) {
@@ -260,6 +360,7 @@ public class ProjectVersionRefUpdateImpl
         throw new LocalProjectVersionUpdateException(message);
       }
 
+      localVersions.put(projectNameKey.get(), Optional.of(newVersionNumber));
       return Optional.of(refUpdate);
     } catch (IOException e) {
       String message = "Cannot create versioning command for " + projectNameKey.get();
@@ -268,8 +369,12 @@ public class ProjectVersionRefUpdateImpl
     }
   }
 
-  private long getCurrentGlobalVersionNumber() {
-    return System.currentTimeMillis();
+  /* (non-Javadoc)
+   * @see com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate#getCurrentGlobalVersionNumber()
+   */
+  @Override
+  public long getCurrentGlobalVersionNumber() {
+    return clock.tick();
   }
 
   private Boolean isSuccessful(RefUpdate.Result result) {
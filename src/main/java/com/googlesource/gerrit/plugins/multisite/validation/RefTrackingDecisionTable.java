@@ -0,0 +1,90 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import static com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate.MULTI_SITE_VERSIONING_REF;
+
+import com.gerritforge.gerrit.globalrefdb.validation.dfsrefdb.LegacySharedRefEnforcement;
+import com.gerritforge.gerrit.globalrefdb.validation.dfsrefdb.LegacySharedRefEnforcement.EnforcePolicy;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.time.Duration;
+
+/**
+ * Decides whether a ref is tracked on the global-refdb, so that the replication filters can skip
+ * the global-refdb lookups for the refs that are never stored there.
+ *
+ * <p>The refs ignored by the global-refdb library, and the multi-site version ref, are matched
+ * without evaluating the enforcement policies. The project-wide enforcement policy is remembered
+ * for a bounded set of recently used projects and the per-ref enforcement policy is only evaluated
+ * for the remaining refs.
+ */
+@Singleton
+public class RefTrackingDecisionTable {
+  private static final long MAX_TRACKED_PROJECTS = 10_000;
+  private static final Duration PROJECT_POLICY_TTL = Duration.ofHours(1);
+
+  private final LegacySharedRefEnforcement refEnforcement;
+  private final SharedRefDbReadMetrics metrics;
+  private final Cache<String, Boolean> projectsIgnored =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_TRACKED_PROJECTS)
+          .expireAfterWrite(PROJECT_POLICY_TTL)
+          .build();
+
+  @Inject
+  public RefTrackingDecisionTable(
+      LegacySharedRefEnforcement refEnforcement, SharedRefDbReadMetrics metrics) {
+    this.refEnforcement = refEnforcement;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Check if a ref needs to be looked up on the global-refdb.
+   *
+   * @param projectName the project name
+   * @param refName the ref name
+   * @return true if the ref is tracked on the global-refdb, false if the lookup can be skipped
+   */
+  public boolean isTracked(String projectName, String refName) {
+    if (isUntrackedRef(refName)
+        || projectsIgnored.asMap().computeIfAbsent(projectName, this::isProjectIgnored)
+        || refEnforcement.getPolicy(projectName, refName) == EnforcePolicy.IGNORED) {
+      metrics.incrementLookupAvoided();
+      return false;
+    }
+    return true;
+  }
+
+  private boolean isProjectIgnored(String projectName) {
+    return refEnforcement.getPolicy(projectName) == EnforcePolicy.IGNORED;
+  }
+
+  private boolean isUntrackedRef(String refName) {
+    /*
+     * Since ac43a5f94c773c9db7a73d44035961d69d13fa53 the 'refs/multi-site/version' is
+     * not updated anymore on the global-refdb; however, the values stored already
+     * on the global-refdb could get in the way and prevent replication from happening
+     * as expected.
+     *
+     * Exclude the 'refs/multi-site/version' from local vs. global refdb checking
+     * pretending that the global-refdb for that ref did not exist.
+     */
+    return MULTI_SITE_VERSIONING_REF.equals(refName)
+        || refEnforcement.isRefToBeIgnoredBySharedRefDb(refName);
+  }
+}
@@ -0,0 +1,91 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer1;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.MultiSiteMetrics;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class ReplicationFilterMetrics extends MultiSiteMetrics {
+  private static final String REPLICATION_FILTER = "replication_filter";
+
+  private final Timer1<String> localRefConvergenceTime;
+  private final Timer1<String> waitTime;
+  private final Counter1<String> adaptiveWaitCounter;
+  private final Counter1<String> fixedWaitCounter;
+  private final Counter1<String> notUpToDateCacheHitCounter;
+
+  @Inject
+  public ReplicationFilterMetrics(MetricMaker metricMaker) {
+    this.localRefConvergenceTime =
+        metricMaker.newTimer(
+            "multi_site/replication_filter/local_ref_convergence_time",
+            new Description(
+                    "Time taken by a local ref not up-to-date with the global-refdb to be updated")
+                .setCumulative()
+                .setUnit(Description.Units.MILLISECONDS),
+            stringField(REPLICATION_FILTER, "Replication filter, push or fetch"));
+
+    this.waitTime =
+        metricMaker.newTimer(
+            "multi_site/replication_filter/wait_time",
+            new Description("Maximum wait applied before re-checking a ref with the global-refdb")
+                .setCumulative()
+                .setUnit(Description.Units.MILLISECONDS),
+            stringField(REPLICATION_FILTER, "Replication filter, push or fetch"));
+
+    this.adaptiveWaitCounter =
+        metricMaker.newCounter(
+            "multi_site/replication_filter/adaptive_wait_counter",
+            rateDescription("waits", "Number of waits sized from the observed convergence time"),
+            stringField(REPLICATION_FILTER, "Replication filter, push or fetch"));
+
+    this.fixedWaitCounter =
+        metricMaker.newCounter(
+            "multi_site/replication_filter/fixed_wait_counter",
+            rateDescription("waits", "Number of waits sized from the configured random sleep"),
+            stringField(REPLICATION_FILTER, "Replication filter, push or fetch"));
+
+    this.notUpToDateCacheHitCounter =
+        metricMaker.newCounter(
+            "multi_site/replication_filter/not_up_to_date_cache_hit_counter",
+            rateDescription(
+                "refs", "Number of refs found not up-to-date without checking the global-refdb"),
+            stringField(REPLICATION_FILTER, "Replication filter, push or fetch"));
+  }
+
+  public void recordLocalRefConvergenceTime(String filter, long convergenceTimeMsec) {
+    localRefConvergenceTime.record(filter, convergenceTimeMsec, TimeUnit.MILLISECONDS);
+  }
+
+  public void recordWait(String filter, long waitTimeMsec, boolean adaptive) {
+    waitTime.record(filter, waitTimeMsec, TimeUnit.MILLISECONDS);
+    if (adaptive) {
+      adaptiveWaitCounter.increment(filter);
+    } else {
+      fixedWaitCounter.increment(filter);
+    }
+  }
+
+  public void incrementNotUpToDateCacheHit(String filter) {
+    notUpToDateCacheHitCounter.increment(filter);
+  }
+}
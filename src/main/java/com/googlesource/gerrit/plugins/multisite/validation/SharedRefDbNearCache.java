@@ -0,0 +1,157 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import static com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate.MULTI_SITE_VERSIONING_REF;
+import static com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate.MULTI_SITE_VERSIONING_VALUE_REF;
+
+import com.gerritforge.gerrit.globalrefdb.GlobalRefDbLockException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.eclipse.jgit.lib.Ref;
+
+/**
+ * Bounded read-through cache of the global-refdb values used for replication filtering and for
+ * the replication lag tracking.
+ *
+ * <p>Entries expire after {@code ref-database.nearCacheTtl} and are invalidated as soon as an
+ * update of the same ref is observed, either locally or from the stream events received through
+ * the broker. Compare-and-put operations never go through this cache.
+ */
+@Singleton
+public class SharedRefDbNearCache implements GitBatchRefUpdateListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final int INVALIDATION_STRIPES = 1024;
+
+  private final SharedRefDbReadCoalescer sharedRefDbReader;
+  private final SharedRefDbReadMetrics metrics;
+  private final boolean enabled;
+  private final Cache<String, Optional<String>> nearCache;
+  // Invalidations counted per stripe of keys, so that updates of unrelated refs do not prevent
+  // caching the values read meanwhile
+  private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+  @Inject
+  public SharedRefDbNearCache(
+      SharedRefDbReadCoalescer sharedRefDbReader,
+      Configuration config,
+      SharedRefDbReadMetrics metrics) {
+    this.sharedRefDbReader = sharedRefDbReader;
+    this.metrics = metrics;
+    long ttlMsec = config.sharedRefDbNearCacheTtlMsec();
+    long maxSize = config.sharedRefDbNearCacheMaxSize();
+    this.enabled = ttlMsec > 0 && maxSize > 0;
+    this.nearCache =
+        CacheBuilder.newBuilder()
+            .maximumSize(Math.max(maxSize, 0))
+            .expireAfterWrite(Math.max(ttlMsec, 0), TimeUnit.MILLISECONDS)
+            .build();
+  }
+
+  /**
+   * Get the value of a ref in the global-refdb, served from the near-cache when possible.
+   *
+   * @param project the project name key
+   * @param refName the ref name
+   * @return the value stored in the global-refdb or empty if the ref is not tracked
+   */
+  public Optional<String> get(Project.NameKey project, String refName) {
+    if (!enabled) {
+      return sharedRefDbReader.get(project, refName);
+    }
+
+    String key = key(project, refName);
+    Optional<String> cachedValue = nearCache.getIfPresent(key);
+    if (cachedValue != null) {
+      metrics.incrementNearCacheHit();
+      return cachedValue;
+    }
+
+    metrics.incrementNearCacheMiss();
+    int stripe = stripe(key);
+    long invalidationsBeforeRead = invalidations.get(stripe);
+    Optional<String> value = sharedRefDbReader.get(project, refName);
+    nearCache.put(key, value);
+    if (invalidations.get(stripe) != invalidationsBeforeRead) {
+      // The ref may have been updated whilst reading from the global-refdb
+      nearCache.invalidate(key);
+    }
+    return value;
+  }
+
+  /**
+   * Check if the local ref is up-to-date with the value stored in the global-refdb.
+   *
+   * @param project the project name key
+   * @param ref the local ref to check
+   * @return true if the ref is not tracked on the global-refdb or has the same value
+   * @throws GlobalRefDbLockException if the global-refdb is locked
+   */
+  public boolean isUpToDate(Project.NameKey project, Ref ref) throws GlobalRefDbLockException {
+    if (!enabled) {
+      return sharedRefDbReader.isUpToDate(project, ref);
+    }
+
+    return get(project, ref.getName())
+        .map(sharedValue -> sharedValue.equals(ref.getObjectId().getName()))
+        .orElse(true);
+  }
+
+  public void invalidate(Project.NameKey project, String refName) {
+    if (!enabled) {
+      return;
+    }
+
+    invalidate(key(project, refName));
+    if (MULTI_SITE_VERSIONING_REF.equals(refName)) {
+      invalidate(key(project, MULTI_SITE_VERSIONING_VALUE_REF));
+    }
+    logger.atFinest().log("Invalidated near-cache entry %s:%s", project.get(), refName);
+  }
+
+  @Override
+  public void onGitBatchRefUpdate(Event event) {
+    Project.NameKey project = Project.nameKey(event.getProjectName());
+    event.getRefNames().forEach(refName -> invalidate(project, refName));
+  }
+
+  private void invalidate(String key) {
+    invalidations.incrementAndGet(stripe(key));
+    nearCache.invalidate(key);
+  }
+
+  private static int stripe(String key) {
+    return Math.floorMod(key.hashCode(), INVALIDATION_STRIPES);
+  }
+
+  @VisibleForTesting
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  private static String key(Project.NameKey project, String refName) {
+    return String.format("%s:%s", project.get(), refName);
+  }
+}
@@ -0,0 +1,120 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import com.gerritforge.gerrit.globalrefdb.GlobalRefDbLockException;
+import com.gerritforge.gerrit.globalrefdb.validation.SharedRefDatabaseWrapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.gerrit.entities.Project;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import org.eclipse.jgit.lib.Ref;
+
+/**
+ * Single-flight layer for the reads of the global-refdb.
+ *
+ * <p>Concurrent identical lookups, typically issued by the replication threads of the different
+ * remotes for the same project and ref, share one in-flight call to the global-refdb instead of
+ * issuing one call each.
+ */
+@Singleton
+public class SharedRefDbReadCoalescer {
+  private final SharedRefDatabaseWrapper sharedRefDb;
+  private final SharedRefDbReadMetrics metrics;
+  private final ConcurrentMap<String, CompletableFuture<Optional<String>>> inFlightGets =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, CompletableFuture<Boolean>> inFlightUpToDateChecks =
+      new ConcurrentHashMap<>();
+
+  @Inject
+  public SharedRefDbReadCoalescer(
+      SharedRefDatabaseWrapper sharedRefDb, SharedRefDbReadMetrics metrics) {
+    this.sharedRefDb = sharedRefDb;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Get the value of a ref in the global-refdb, sharing any identical read already in-flight.
+   *
+   * @param project the project name key
+   * @param refName the ref name
+   * @return the value stored in the global-refdb or empty if the ref is not tracked
+   */
+  public Optional<String> get(Project.NameKey project, String refName) {
+    return coalesce(
+        inFlightGets,
+        String.format("%s:%s", project.get(), refName),
+        () -> sharedRefDb.get(project, refName, String.class));
+  }
+
+  /**
+   * Check if the local ref is up-to-date with the global-refdb, sharing any identical check
+   * already in-flight.
+   *
+   * @param project the project name key
+   * @param ref the local ref to check
+   * @return true if the ref is up-to-date with the global-refdb
+   * @throws GlobalRefDbLockException if the global-refdb is locked
+   */
+  public boolean isUpToDate(Project.NameKey project, Ref ref) throws GlobalRefDbLockException {
+    return coalesce(
+        inFlightUpToDateChecks,
+        String.format("%s:%s:%s", project.get(), ref.getName(), ref.getObjectId().getName()),
+        () -> sharedRefDb.isUpToDate(project, ref));
+  }
+
+  @VisibleForTesting
+  int inFlightReads() {
+    return inFlightGets.size() + inFlightUpToDateChecks.size();
+  }
+
+  private <T> T coalesce(
+      ConcurrentMap<String, CompletableFuture<T>> inFlight, String key, Supplier<T> read) {
+    CompletableFuture<T> ownRead = new CompletableFuture<>();
+    CompletableFuture<T> sharedRead = inFlight.putIfAbsent(key, ownRead);
+    if (sharedRead != null) {
+      metrics.incrementCoalescedRead();
+      return join(sharedRead);
+    }
+
+    try {
+      T value = read.get();
+      ownRead.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      ownRead.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, ownRead);
+    }
+  }
+
+  private static <T> T join(CompletableFuture<T> sharedRead) {
+    try {
+      return sharedRead.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
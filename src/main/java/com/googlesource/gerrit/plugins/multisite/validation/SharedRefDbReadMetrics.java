@@ -0,0 +1,78 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.multisite.MultiSiteMetrics;
+
+@Singleton
+public class SharedRefDbReadMetrics extends MultiSiteMetrics {
+  private static final String NEAR_CACHE_HIT_COUNTER = "global_refdb_near_cache_hit_counter";
+  private static final String NEAR_CACHE_MISS_COUNTER = "global_refdb_near_cache_miss_counter";
+  private static final String COALESCED_READ_COUNTER = "global_refdb_coalesced_read_counter";
+  private static final String LOOKUP_AVOIDED_COUNTER = "global_refdb_lookup_avoided_counter";
+
+  private final Counter1<String> nearCacheHitCounter;
+  private final Counter1<String> nearCacheMissCounter;
+  private final Counter1<String> coalescedReadCounter;
+  private final Counter1<String> lookupAvoidedCounter;
+
+  @Inject
+  public SharedRefDbReadMetrics(MetricMaker metricMaker) {
+    this.nearCacheHitCounter =
+        metricMaker.newCounter(
+            "multi_site/global_refdb/near_cache_hit_counter",
+            rateDescription("reads", "Number of global-refdb reads served by the near-cache"),
+            stringField(NEAR_CACHE_HIT_COUNTER, "Global-refdb near-cache hit count"));
+
+    this.nearCacheMissCounter =
+        metricMaker.newCounter(
+            "multi_site/global_refdb/near_cache_miss_counter",
+            rateDescription("reads", "Number of global-refdb reads not found in the near-cache"),
+            stringField(NEAR_CACHE_MISS_COUNTER, "Global-refdb near-cache miss count"));
+
+    this.coalescedReadCounter =
+        metricMaker.newCounter(
+            "multi_site/global_refdb/coalesced_read_counter",
+            rateDescription(
+                "reads", "Number of global-refdb reads collapsed into an identical in-flight read"),
+            stringField(COALESCED_READ_COUNTER, "Global-refdb coalesced read count"));
+
+    this.lookupAvoidedCounter =
+        metricMaker.newCounter(
+            "multi_site/global_refdb/lookup_avoided_counter",
+            rateDescription("lookups", "Number of global-refdb lookups skipped for untracked refs"),
+            stringField(LOOKUP_AVOIDED_COUNTER, "Global-refdb lookup avoided count"));
+  }
+
+  public void incrementNearCacheHit() {
+    nearCacheHitCounter.increment(NEAR_CACHE_HIT_COUNTER);
+  }
+
+  public void incrementNearCacheMiss() {
+    nearCacheMissCounter.increment(NEAR_CACHE_MISS_COUNTER);
+  }
+
+  public void incrementCoalescedRead() {
+    coalescedReadCounter.increment(COALESCED_READ_COUNTER);
+  }
+
+  public void incrementLookupAvoided() {
+    lookupAvoidedCounter.increment(LOOKUP_AVOIDED_COUNTER);
+  }
+}
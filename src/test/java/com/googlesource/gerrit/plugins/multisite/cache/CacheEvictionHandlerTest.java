@@ -14,36 +14,208 @@
 
 package com.googlesource.gerrit.plugins.multisite.cache;
 
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 
 import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalNotification;
 import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.metrics.DisabledMetricMaker;
 import com.googlesource.gerrit.plugins.multisite.Configuration;
-import java.util.concurrent.Executor;
+import com.googlesource.gerrit.plugins.multisite.forwarder.CacheEvictionForwarder;
+import com.googlesource.gerrit.plugins.multisite.forwarder.CacheEvictionMetrics;
+import com.googlesource.gerrit.plugins.multisite.forwarder.CacheEvictionPriority;
+import com.googlesource.gerrit.plugins.multisite.forwarder.events.CacheEvictionEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.eclipse.jgit.lib.Config;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CacheEvictionHandlerTest {
+  private static final String INSTANCE_ID = "instance-id";
+  private static final String CACHE = "projects";
 
-  @Mock private Executor executorMock;
+  @Mock private ScheduledExecutorService executorMock;
+  @Mock private ScheduledExecutorService highPriorityExecutorMock;
+  @Mock private CacheEvictionMetrics metricsMock;
   private CachePatternMatcher defaultCacheMatcher =
-      new CachePatternMatcher(new Configuration(new Config(), new Config()));
+      new CachePatternMatcher(
+          new Configuration(new Config(), new Config()),
+          new CachePatternMatcherMetrics(new DisabledMetricMaker()));
+  private List<CacheEvictionEvent> forwardedEvents = new ArrayList<>();
 
   @Test
   public void shouldNotPublishAccountsCacheEvictions() {
-    String instanceId = "instance-id";
-    final CacheEvictionHandler<String, String> handler =
-        new CacheEvictionHandler<>(
-            DynamicSet.emptySet(), executorMock, defaultCacheMatcher, instanceId);
+    final CacheEvictionHandler<String, String> handler = newHandler(new Config());
 
     handler.onRemoval(
         "test", "accounts", RemovalNotification.create("test", "accounts", RemovalCause.EXPLICIT));
 
     verifyNoInteractions(executorMock);
   }
+
+  @Test
+  public void shouldNotPublishProjectListCacheEvictions() {
+    Config cfg = new Config();
+    cfg.setString("cache", null, "pattern", Constants.PROJECT_LIST);
+    final CacheEvictionHandler<String, String> handler =
+        new CacheEvictionHandler<>(
+            DynamicSet.emptySet(),
+            executorMock,
+            highPriorityExecutorMock,
+            new CachePatternMatcher(
+                new Configuration(cfg, new Config()),
+                new CachePatternMatcherMetrics(new DisabledMetricMaker())),
+            INSTANCE_ID,
+            new CacheEvictionMetrics(new DisabledMetricMaker()),
+            new CacheEvictionPriority(new Configuration(cfg, new Config())),
+            new Configuration(cfg, new Config()));
+
+    handler.onRemoval("gerrit", Constants.PROJECT_LIST, removal("ALL"));
+
+    verifyNoInteractions(executorMock);
+  }
+
+  @Test
+  public void shouldPublishOneEventPerRemovalWhenBatchingIsDisabled() {
+    final CacheEvictionHandler<String, String> handler = newHandler(new Config());
+
+    handler.onRemoval("gerrit", CACHE, removal("foo"));
+    handler.onRemoval("gerrit", CACHE, removal("bar"));
+
+    ArgumentCaptor<Runnable> tasks = ArgumentCaptor.forClass(Runnable.class);
+    verify(executorMock, times(2)).execute(tasks.capture());
+    tasks.getAllValues().forEach(Runnable::run);
+    assertThat(forwardedEvents)
+        .containsExactly(
+            new CacheEvictionEvent(CACHE, "foo", INSTANCE_ID),
+            new CacheEvictionEvent(CACHE, "bar", INSTANCE_ID));
+  }
+
+  @Test
+  public void shouldPublishOneMultiKeyEventForRemovalsWithinTheBatchWindow() {
+    final CacheEvictionHandler<String, String> handler = newHandler(batchingConfig(10));
+
+    handler.onRemoval("gerrit", CACHE, removal("foo"));
+    handler.onRemoval("gerrit", CACHE, removal("bar"));
+    handler.onRemoval("gerrit", CACHE, removal("foo"));
+    runScheduledFlush();
+
+    assertThat(forwardedEvents)
+        .containsExactly(CacheEvictionEvent.forKeys(CACHE, List.of("foo", "bar"), INSTANCE_ID));
+  }
+
+  @Test
+  public void shouldStampBatchedEventsWithTheTimeOfTheFirstRemoval() throws Exception {
+    final CacheEvictionHandler<String, String> handler = newHandler(batchingConfig(10));
+
+    handler.onRemoval("gerrit", CACHE, removal("foo"));
+    long afterFirstRemoval = System.currentTimeMillis();
+    Thread.sleep(10L);
+    handler.onRemoval("gerrit", CACHE, removal("bar"));
+    runScheduledFlush();
+
+    assertThat(forwardedEvents).hasSize(1);
+    assertThat(forwardedEvents.get(0).evictedOn).isAtMost(afterFirstRemoval);
+  }
+
+  @Test
+  public void shouldMeasureThePublishLatencyFromTheFirstRemovalOfTheBatch() throws Exception {
+    final CacheEvictionHandler<String, String> handler =
+        newHandler(batchingConfig(10), metricsMock);
+
+    handler.onRemoval("gerrit", CACHE, removal("foo"));
+    Thread.sleep(20L);
+    handler.onRemoval("gerrit", CACHE, removal("bar"));
+    runScheduledFlush();
+
+    verify(metricsMock)
+        .recordPublishLatency(
+            eq(CacheEvictionPriority.Priority.NORMAL), longThat(latency -> latency >= 20L));
+  }
+
+  @Test
+  public void shouldPublishSingleKeyEventWhenOnlyOneRemovalIsBuffered() {
+    final CacheEvictionHandler<String, String> handler = newHandler(batchingConfig(10));
+
+    handler.onRemoval("gerrit", CACHE, removal("foo"));
+    runScheduledFlush();
+
+    assertThat(forwardedEvents).containsExactly(new CacheEvictionEvent(CACHE, "foo", INSTANCE_ID));
+  }
+
+  @Test
+  public void shouldPublishAllKeysEventWhenRemovalsExceedTheThreshold() {
+    final CacheEvictionHandler<String, String> handler = newHandler(batchingConfig(2));
+
+    handler.onRemoval("gerrit", CACHE, removal("foo"));
+    handler.onRemoval("gerrit", CACHE, removal("bar"));
+    handler.onRemoval("gerrit", CACHE, removal("baz"));
+    runScheduledFlush();
+
+    assertThat(forwardedEvents).containsExactly(CacheEvictionEvent.forAllKeys(CACHE, INSTANCE_ID));
+  }
+
+  @Test
+  public void shouldPublishHighPriorityEvictionsImmediatelyOnTheirOwnExecutor() {
+    Config cfg = batchingConfig(10);
+    cfg.setStringList("cache", null, "highPriority", List.of("^groups.*", "sshkeys"));
+    final CacheEvictionHandler<String, String> handler = newHandler(cfg);
+
+    handler.onRemoval("gerrit", "groups_byuuid", removal("foo"));
+
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(highPriorityExecutorMock).execute(task.capture());
+    verifyNoInteractions(executorMock);
+    task.getValue().run();
+    assertThat(forwardedEvents)
+        .containsExactly(new CacheEvictionEvent("groups_byuuid", "foo", INSTANCE_ID));
+  }
+
+  private void runScheduledFlush() {
+    ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+    verify(executorMock).schedule(flush.capture(), eq(100L), eq(TimeUnit.MILLISECONDS));
+    flush.getValue().run();
+  }
+
+  private CacheEvictionHandler<String, String> newHandler(Config multiSiteConfig) {
+    return newHandler(multiSiteConfig, new CacheEvictionMetrics(new DisabledMetricMaker()));
+  }
+
+  private CacheEvictionHandler<String, String> newHandler(
+      Config multiSiteConfig, CacheEvictionMetrics metrics) {
+    DynamicSet<CacheEvictionForwarder> forwarders = new DynamicSet<>();
+    forwarders.add("multi-site", (task, event) -> forwardedEvents.add(event));
+    return new CacheEvictionHandler<>(
+        forwarders,
+        executorMock,
+        highPriorityExecutorMock,
+        defaultCacheMatcher,
+        INSTANCE_ID,
+        metrics,
+        new CacheEvictionPriority(new Configuration(multiSiteConfig, new Config())),
+        new Configuration(multiSiteConfig, new Config()));
+  }
+
+  private static Config batchingConfig(int threshold) {
+    Config cfg = new Config();
+    cfg.setString("cache", null, "evictionBatchWindow", "100 ms");
+    cfg.setInt("cache", null, "evictionBatchThreshold", threshold);
+    return cfg;
+  }
+
+  private static RemovalNotification<String, String> removal(String key) {
+    return RemovalNotification.create(key, "value", RemovalCause.EXPLICIT);
+  }
 }
@@ -16,6 +16,8 @@ package com.googlesource.gerrit.plugins.multisite.cache;
 
 import static com.google.common.truth.Truth.assertWithMessage;
 import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
@@ -31,10 +33,12 @@ public class CachePattenMatcherTest {
   @Mock(answer = RETURNS_DEEP_STUBS)
   private Configuration configurationMock;
 
+  @Mock private CachePatternMatcherMetrics metricsMock;
+
   @Test
   public void testCachePatternMatcher() throws Exception {
     when(configurationMock.cache().patterns()).thenReturn(ImmutableList.of("^my_cache.*", "other"));
-    CachePatternMatcher matcher = new CachePatternMatcher(configurationMock);
+    CachePatternMatcher matcher = new CachePatternMatcher(configurationMock, metricsMock);
     for (String cache :
         ImmutableList.of(
             "groups",
@@ -76,4 +80,26 @@ public class CachePattenMatcherTest {
       assertWithMessage(cache + " should not match").that(matcher.matches(cache)).isFalse();
     }
   }
+
+  @Test
+  public void shouldNeverMatchAdvBases() throws Exception {
+    when(configurationMock.cache().patterns()).thenReturn(ImmutableList.of(".*"));
+    CachePatternMatcher matcher = new CachePatternMatcher(configurationMock, metricsMock);
+
+    assertWithMessage("adv_bases should not match").that(matcher.matches("adv_bases")).isFalse();
+  }
+
+  @Test
+  public void shouldCountEvaluationsOfMemoizedMatches() throws Exception {
+    when(configurationMock.cache().patterns()).thenReturn(ImmutableList.of("other"));
+    CachePatternMatcher matcher = new CachePatternMatcher(configurationMock, metricsMock);
+
+    for (int i = 0; i < 3; i++) {
+      assertWithMessage("other should match").that(matcher.matches("other")).isTrue();
+      assertWithMessage("diff should not match").that(matcher.matches("diff")).isFalse();
+    }
+
+    verify(metricsMock, times(3)).incrementEvaluation("other");
+    verify(metricsMock, times(3)).incrementEvaluation("diff");
+  }
 }
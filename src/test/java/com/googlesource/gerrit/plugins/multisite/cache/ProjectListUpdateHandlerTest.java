@@ -16,24 +16,33 @@ package com.googlesource.gerrit.plugins.multisite.cache;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
-import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gerrit.extensions.events.NewProjectCreatedListener;
 import com.google.gerrit.extensions.events.ProjectDeletedListener;
 import com.google.gerrit.extensions.registration.DynamicSet;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
 import com.googlesource.gerrit.plugins.multisite.cache.ProjectListUpdateHandler.ProjectListUpdateTask;
 import com.googlesource.gerrit.plugins.multisite.forwarder.Context;
 import com.googlesource.gerrit.plugins.multisite.forwarder.ProjectListUpdateForwarder;
 import com.googlesource.gerrit.plugins.multisite.forwarder.events.ProjectListUpdateEvent;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.lib.Config;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -45,12 +54,27 @@ public class ProjectListUpdateHandlerTest {
   private ProjectListUpdateHandler handler;
 
   @Mock private ProjectListUpdateForwarder forwarder;
+  @Mock private ScheduledExecutorService executorMock;
 
   @Before
   public void setUp() {
-    handler =
-        new ProjectListUpdateHandler(
-            asDynamicSet(forwarder), MoreExecutors.directExecutor(), INSTANCE_ID);
+    lenient()
+        .doAnswer(
+            invocation -> {
+              invocation.<Runnable>getArgument(0).run();
+              return null;
+            })
+        .when(executorMock)
+        .execute(any());
+    handler = newHandler(new Config());
+  }
+
+  private ProjectListUpdateHandler newHandler(Config multiSiteConfig) {
+    return new ProjectListUpdateHandler(
+        asDynamicSet(forwarder),
+        executorMock,
+        INSTANCE_ID,
+        new Configuration(multiSiteConfig, new Config()));
   }
 
   private DynamicSet<ProjectListUpdateForwarder> asDynamicSet(
@@ -131,4 +155,95 @@ public class ProjectListUpdateHandlerTest {
         .isEqualTo(
             String.format("Update project list in target instance: remove '%s'", projectName));
   }
+
+  @Test
+  public void shouldForwardProjectUpdatesWithinTheBatchWindowInOneEvent() {
+    Config cfg = new Config();
+    cfg.setString("cache", null, "projectListBatchWindow", "100 ms");
+    handler = newHandler(cfg);
+
+    handler.onNewProjectCreated(newProjectCreated("added"));
+    handler.onNewProjectCreated(newProjectCreated("addedThenRemoved"));
+    handler.onProjectDeleted(projectDeleted("removed"));
+    handler.onProjectDeleted(projectDeleted("addedThenRemoved"));
+    ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+    verify(executorMock).schedule(flush.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+    flush.getValue().run();
+
+    verify(forwarder)
+        .updateProjectList(
+            any(ProjectListUpdateTask.class),
+            eq(
+                ProjectListUpdateEvent.forProjects(
+                    List.of("added"), List.of("addedThenRemoved", "removed"), INSTANCE_ID)));
+  }
+
+  @Test
+  public void shouldForwardAFullBatchWithoutWaitingForTheEndOfTheWindow() {
+    Config cfg = new Config();
+    cfg.setString("cache", null, "projectListBatchWindow", "100 ms");
+    cfg.setInt("cache", null, "projectListBatchThreshold", 2);
+    handler = newHandler(cfg);
+
+    handler.onNewProjectCreated(newProjectCreated("first"));
+    handler.onNewProjectCreated(newProjectCreated("second"));
+    handler.onNewProjectCreated(newProjectCreated("third"));
+
+    verify(forwarder)
+        .updateProjectList(
+            any(ProjectListUpdateTask.class),
+            eq(
+                ProjectListUpdateEvent.forProjects(
+                    List.of("first", "second"), List.of(), INSTANCE_ID)));
+    ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+    verify(executorMock, times(2))
+        .schedule(flush.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+    flush.getAllValues().get(1).run();
+
+    verify(forwarder)
+        .updateProjectList(
+            any(ProjectListUpdateTask.class),
+            eq(new ProjectListUpdateEvent("third", false, INSTANCE_ID)));
+  }
+
+  @Test
+  public void shouldSplitTheBatchesExceedingTheThreshold() {
+    Config cfg = new Config();
+    cfg.setString("cache", null, "projectListBatchWindow", "100 ms");
+    cfg.setInt("cache", null, "projectListBatchThreshold", 2);
+    handler = newHandler(cfg);
+    // The full batch is not flushed before the following updates are received
+    doNothing().when(executorMock).execute(any());
+
+    handler.onNewProjectCreated(newProjectCreated("first"));
+    handler.onNewProjectCreated(newProjectCreated("second"));
+    handler.onProjectDeleted(projectDeleted("third"));
+    ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+    verify(executorMock).schedule(flush.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+    flush.getValue().run();
+
+    verify(forwarder)
+        .updateProjectList(
+            any(ProjectListUpdateTask.class),
+            eq(
+                ProjectListUpdateEvent.forProjects(
+                    List.of("first", "second"), List.of(), INSTANCE_ID)));
+    verify(forwarder)
+        .updateProjectList(
+            any(ProjectListUpdateTask.class),
+            eq(new ProjectListUpdateEvent("third", true, INSTANCE_ID)));
+  }
+
+  private static NewProjectCreatedListener.Event newProjectCreated(String projectName) {
+    NewProjectCreatedListener.Event event = mock(NewProjectCreatedListener.Event.class);
+    when(event.getProjectName()).thenReturn(projectName);
+    when(event.getInstanceId()).thenReturn(INSTANCE_ID);
+    return event;
+  }
+
+  private static ProjectDeletedListener.Event projectDeleted(String projectName) {
+    ProjectDeletedListener.Event event = mock(ProjectDeletedListener.Event.class);
+    when(event.getProjectName()).thenReturn(projectName);
+    return event;
+  }
 }
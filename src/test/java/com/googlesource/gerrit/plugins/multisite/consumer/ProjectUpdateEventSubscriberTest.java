@@ -33,7 +33,10 @@ public class ProjectUpdateEventSubscriberTest extends AbstractSubscriberTestBase
 
   @Override
   protected List<Event> events() {
-    return ImmutableList.of(new ProjectListUpdateEvent(PROJECT_NAME, false, INSTANCE_ID));
+    return ImmutableList.of(
+        new ProjectListUpdateEvent(PROJECT_NAME, false, INSTANCE_ID),
+        ProjectListUpdateEvent.forProjects(
+            ImmutableList.of(PROJECT_NAME), ImmutableList.of(), INSTANCE_ID));
   }
 
   @Override
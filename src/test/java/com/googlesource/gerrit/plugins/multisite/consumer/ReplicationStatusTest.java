@@ -17,9 +17,12 @@ package com.googlesource.gerrit.plugins.multisite.consumer;
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.common.cache.Cache;
@@ -34,21 +37,30 @@ import com.googlesource.gerrit.plugins.multisite.Configuration;
 import com.googlesource.gerrit.plugins.multisite.ProjectVersionLogger;
 import com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.jgit.lib.Config;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ReplicationStatusTest {
+  private static final String WRITE_THROUGH = "0";
 
   @Mock private ProjectVersionLogger verLogger;
   @Mock private ProjectCache projectCache;
   @Mock private ProjectVersionRefUpdate projectVersionRefUpdate;
   @Mock private CallbackMetric1<String, Long> perProjectReplicationLagMetricCallback;
+  @Mock private CallbackMetric1<String, Long> lagPercentilesMetricCallback;
+  @Mock private CallbackMetric1<String, Long> lagBucketsMetricCallback;
+  @Mock private ScheduledExecutorService directExecutor;
   private ReplicationStatus objectUnderTest;
   private Cache<String, Long> replicationStatusCache;
 
@@ -58,15 +70,15 @@ public class ReplicationStatusTest {
         .thenReturn(
             ImmutableSortedSet.of(Project.nameKey("projectA"), Project.nameKey("projectB")));
     replicationStatusCache = CacheBuilder.newBuilder().build();
-    objectUnderTest =
-        new ReplicationStatus(
-            replicationStatusCache,
-            Optional.of(projectVersionRefUpdate),
-            verLogger,
-            projectCache,
-            Executors.newScheduledThreadPool(1),
-            new Configuration(new Config(), new Config()),
-            new DisabledMetricMaker());
+    lenient()
+        .doAnswer(
+            invocation -> {
+              invocation.<Runnable>getArgument(0).run();
+              return null;
+            })
+        .when(directExecutor)
+        .execute(any());
+    objectUnderTest = newReplicationStatus(multiSiteConfig(WRITE_THROUGH));
   }
 
   @Test
@@ -78,6 +90,32 @@ public class ReplicationStatusTest {
     assertThat(objectUnderTest.getMaxLagMillis()).isEqualTo(10L);
   }
 
+  @Test
+  public void shouldLoadLagsFromPersistedCacheInTheBackground() {
+    ScheduledExecutorService refreshExecutor = mock(ScheduledExecutorService.class);
+    ReplicationStatus replicationStatus =
+        newReplicationStatus(multiSiteConfig(WRITE_THROUGH), refreshExecutor);
+    replicationStatusCache.put("projectA", 10L);
+
+    replicationStatus.start();
+    assertThat(replicationStatus.getMaxLagMillis()).isEqualTo(0L);
+
+    ArgumentCaptor<Runnable> load = ArgumentCaptor.forClass(Runnable.class);
+    verify(refreshExecutor).execute(load.capture());
+    load.getValue().run();
+    assertThat(replicationStatus.getMaxLagMillis()).isEqualTo(10L);
+  }
+
+  @Test
+  public void shouldNotOverrideLagsUpdatedBeforeThePersistedCacheIsLoaded() {
+    objectUnderTest.doUpdateLag(Project.nameKey("projectA"), 3L);
+    replicationStatusCache.put("projectA", 10L);
+
+    objectUnderTest.start();
+
+    assertThat(objectUnderTest.getMaxLagMillis()).isEqualTo(3L);
+  }
+
   @Test
   public void shouldConvertMillisLagFromPersistedCacheOnStartToSecs() {
     replicationStatusCache.put("projectA", 10000L);
@@ -107,6 +145,100 @@ public class ReplicationStatusTest {
         .containsExactly("projectA", "projectB");
   }
 
+  @Test
+  public void shouldKeepReplicationLagsOrderedWhenLagsChange() {
+    objectUnderTest.doUpdateLag(Project.nameKey("projectA"), 30L);
+    objectUnderTest.doUpdateLag(Project.nameKey("projectB"), 20L);
+    objectUnderTest.doUpdateLag(Project.nameKey("projectC"), 10L);
+
+    objectUnderTest.doUpdateLag(Project.nameKey("projectA"), 5L);
+
+    assertThat(objectUnderTest.getMaxLagMillis()).isEqualTo(20L);
+    assertThat(objectUnderTest.getReplicationLags(2))
+        .containsExactly("projectB", 20L, "projectC", 10L)
+        .inOrder();
+  }
+
+  @Test
+  public void shouldReturnTheRequestedPageOfReplicationLags() {
+    objectUnderTest.doUpdateLag(Project.nameKey("team/projectA"), 40L);
+    objectUnderTest.doUpdateLag(Project.nameKey("projectB"), 30L);
+    objectUnderTest.doUpdateLag(Project.nameKey("team/projectC"), 20L);
+    objectUnderTest.doUpdateLag(Project.nameKey("team/projectD"), 10L);
+    objectUnderTest.doUpdateLag(Project.nameKey("team/projectE"), 1L);
+
+    assertThat(objectUnderTest.getReplicationLags(1, 2, "team/", 5L))
+        .containsExactly("team/projectC", 20L, "team/projectD", 10L)
+        .inOrder();
+  }
+
+  @Test
+  public void shouldChangeTheReplicationLagsVersionOnlyWhenALagChanges() {
+    objectUnderTest.doUpdateLag(Project.nameKey("projectA"), 10L);
+    long version = objectUnderTest.getReplicationLagsVersion();
+
+    objectUnderTest.doUpdateLag(Project.nameKey("projectA"), 10L);
+    assertThat(objectUnderTest.getReplicationLagsVersion()).isEqualTo(version);
+
+    objectUnderTest.doUpdateLag(Project.nameKey("projectA"), 11L);
+    assertThat(objectUnderTest.getReplicationLagsVersion()).isGreaterThan(version);
+  }
+
+  @Test
+  public void shouldBufferPersistedCacheUpdatesUntilFlushed() {
+    ReplicationStatus replicationStatus = newReplicationStatus(multiSiteConfig("10s"));
+    replicationStatusCache.put("projectB", 5L);
+
+    replicationStatus.doUpdateLag(Project.nameKey("projectA"), 10L);
+    replicationStatus.doUpdateLag(Project.nameKey("projectA"), 20L);
+    assertThat(replicationStatusCache.getIfPresent("projectA")).isNull();
+    assertThat(replicationStatus.getMaxLagMillis()).isEqualTo(20L);
+
+    replicationStatus.flushReplicationLags();
+
+    assertThat(replicationStatusCache.getIfPresent("projectA")).isEqualTo(20L);
+    assertThat(replicationStatusCache.getIfPresent("projectB")).isEqualTo(5L);
+  }
+
+  @Test
+  public void shouldLimitThePerProjectReplicationLagMetricToTheWorstProjects() {
+    Config multiSiteConfig = multiSiteConfig(WRITE_THROUGH);
+    multiSiteConfig.setInt("ref-database", null, "replicationLagMetricMaxProjects", 2);
+    ReplicationStatus replicationStatus = newReplicationStatus(multiSiteConfig);
+    replicationStatus.doUpdateLag(Project.nameKey("projectA"), 10L);
+    replicationStatus.doUpdateLag(Project.nameKey("projectB"), 30L);
+    replicationStatus.doUpdateLag(Project.nameKey("projectC"), 20L);
+
+    replicationStatus.replicationLagMetricPerProject(perProjectReplicationLagMetricCallback).run();
+
+    verify(perProjectReplicationLagMetricCallback).set("projectB", 30L);
+    verify(perProjectReplicationLagMetricCallback).set("projectC", 20L);
+    verify(perProjectReplicationLagMetricCallback, never()).set("projectA", 10L);
+  }
+
+  @Test
+  public void shouldReportTheReplicationLagDistribution() {
+    for (int i = 1; i <= 100; i++) {
+      objectUnderTest.doUpdateLag(Project.nameKey("project" + i), i * 1000L);
+    }
+    objectUnderTest.doUpdateLag(Project.nameKey("upToDate"), 0L);
+
+    objectUnderTest
+        .replicationLagDistribution(lagPercentilesMetricCallback, lagBucketsMetricCallback)
+        .run();
+
+    verify(lagPercentilesMetricCallback).set("p50", 50000L);
+    verify(lagPercentilesMetricCallback).set("p90", 90000L);
+    verify(lagPercentilesMetricCallback).set("p99", 99000L);
+    verify(lagPercentilesMetricCallback).set("max", 100000L);
+    verify(lagBucketsMetricCallback).set("none", 1L);
+    verify(lagBucketsMetricCallback).set("less_than_1_sec", 0L);
+    verify(lagBucketsMetricCallback).set("less_than_10_sec", 9L);
+    verify(lagBucketsMetricCallback).set("less_than_1_min", 50L);
+    verify(lagBucketsMetricCallback).set("less_than_10_min", 41L);
+    verify(lagBucketsMetricCallback).set("over_10_min", 0L);
+  }
+
   @Test
   public void shouldUpdatePersistedCacheWhenUpdatingLagValue() {
     objectUnderTest.doUpdateLag(Project.nameKey("projectA"), 20L);
@@ -220,6 +352,66 @@ public class ReplicationStatusTest {
     assertThat(replicationStatusCache.getIfPresent(projectName)).isEqualTo(0);
   }
 
+  @Test
+  public void shouldBackOffTheRefreshOfProjectsWhoseLagIsNotChanging() {
+    String projectName = "projectA";
+    when(projectVersionRefUpdate.getProjectLocalVersion(eq(projectName)))
+        .thenReturn(Optional.of(10L));
+    when(projectVersionRefUpdate.getProjectRemoteVersion(eq(projectName)))
+        .thenReturn(Optional.of(20L));
+    objectUnderTest.updateReplicationLag(Project.nameKey(projectName));
+
+    objectUnderTest.refreshProjectsWithLag();
+    objectUnderTest.refreshProjectsWithLag();
+
+    verify(projectVersionRefUpdate, times(2)).getProjectRemoteVersion(projectName);
+  }
+
+  @Test
+  public void shouldCoalesceTheScheduledReplicationLagUpdatesOfAProject() {
+    ScheduledExecutorService refreshExecutor = mock(ScheduledExecutorService.class);
+    ScheduledExecutorService updateExecutor = mock(ScheduledExecutorService.class);
+    ReplicationStatus replicationStatus =
+        newReplicationStatus(multiSiteConfig(WRITE_THROUGH), refreshExecutor, updateExecutor);
+
+    replicationStatus.scheduleReplicationLagUpdate(Project.nameKey("projectA"));
+    replicationStatus.scheduleReplicationLagUpdate(Project.nameKey("projectA"));
+    replicationStatus.scheduleReplicationLagUpdate(Project.nameKey("projectB"));
+
+    verify(updateExecutor, times(2)).execute(any());
+    verifyNoInteractions(refreshExecutor);
+  }
+
+  @Test
+  public void shouldSerializeTheReplicationLagUpdatesOfAProject() throws Exception {
+    String projectName = "projectA";
+    AtomicInteger runningReads = new AtomicInteger();
+    AtomicInteger maxRunningReads = new AtomicInteger();
+    when(projectVersionRefUpdate.getProjectRemoteVersion(projectName))
+        .thenAnswer(
+            invocation -> {
+              maxRunningReads.accumulateAndGet(runningReads.incrementAndGet(), Math::max);
+              Thread.sleep(50L);
+              runningReads.decrementAndGet();
+              return Optional.of(2L);
+            });
+    when(projectVersionRefUpdate.getProjectLocalVersion(projectName)).thenReturn(Optional.of(1L));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> first =
+          executor.submit(() -> objectUnderTest.updateReplicationLag(Project.nameKey(projectName)));
+      Future<?> second =
+          executor.submit(() -> objectUnderTest.updateReplicationLag(Project.nameKey(projectName)));
+      first.get();
+      second.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(maxRunningReads.get()).isEqualTo(1);
+    assertThat(objectUnderTest.getReplicationLags(1)).containsExactly(projectName, 1L);
+  }
+
   private void setupReplicationLag(String projectName, long lag) {
     long currentVersion = System.currentTimeMillis();
     long newVersion = currentVersion + lag;
@@ -236,4 +428,37 @@ public class ReplicationStatusTest {
     when(event.getProjectName()).thenReturn(projectName);
     return event;
   }
+
+  private static Config multiSiteConfig(String cacheFlushInterval) {
+    Config multiSiteConfig = new Config();
+    multiSiteConfig.setString(
+        "ref-database", null, "replicationStatusFlushInterval", cacheFlushInterval);
+    return multiSiteConfig;
+  }
+
+  private ReplicationStatus newReplicationStatus(Config multiSiteConfig) {
+    return newReplicationStatus(multiSiteConfig, directExecutor);
+  }
+
+  private ReplicationStatus newReplicationStatus(
+      Config multiSiteConfig, ScheduledExecutorService refreshExecutor) {
+    return newReplicationStatus(multiSiteConfig, refreshExecutor, directExecutor);
+  }
+
+  private ReplicationStatus newReplicationStatus(
+      Config multiSiteConfig,
+      ScheduledExecutorService refreshExecutor,
+      ScheduledExecutorService updateExecutor) {
+    return new ReplicationStatus(
+        replicationStatusCache,
+        Optional.of(projectVersionRefUpdate),
+        verLogger,
+        projectCache,
+        Executors.newScheduledThreadPool(1),
+        refreshExecutor,
+        updateExecutor,
+        new Configuration(multiSiteConfig, new Config()),
+        new DisabledMetricMaker(),
+        new ReplicationStatusMetrics(new DisabledMetricMaker()));
+  }
 }
@@ -15,6 +15,8 @@
 package com.googlesource.gerrit.plugins.multisite.consumer;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -34,6 +36,7 @@ import com.googlesource.gerrit.plugins.replication.events.ProjectDeletionReplica
 import java.net.URISyntaxException;
 import java.util.Optional;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.transport.URIish;
 import org.junit.Before;
@@ -52,6 +55,7 @@ public class SubscriberMetricsTest {
   @Mock private ProjectVersionLogger verLogger;
   @Mock private ProjectCache projectCache;
   @Mock private ProjectVersionRefUpdate projectVersionRefUpdate;
+  @Mock private ScheduledExecutorService directExecutor;
   private SubscriberMetrics metrics;
   private ReplicationStatus replicationStatus;
 
@@ -59,6 +63,14 @@ public class SubscriberMetricsTest {
   public void setup() throws Exception {
     Config multiSiteConfig = new Config();
     multiSiteConfig.setBoolean("ref-database", null, "pullReplicationFilterEnabled", false);
+    lenient()
+        .doAnswer(
+            invocation -> {
+              invocation.<Runnable>getArgument(0).run();
+              return null;
+            })
+        .when(directExecutor)
+        .execute(any());
     replicationStatus =
         new ReplicationStatus(
             CacheBuilder.newBuilder().build(),
@@ -66,9 +78,12 @@ public class SubscriberMetricsTest {
             verLogger,
             projectCache,
             Executors.newScheduledThreadPool(1),
+            directExecutor,
+            directExecutor,
             new com.googlesource.gerrit.plugins.multisite.Configuration(
                 multiSiteConfig, new Config()),
-            new DisabledMetricMaker());
+            new DisabledMetricMaker(),
+            new ReplicationStatusMetrics(new DisabledMetricMaker()));
     metrics = new SubscriberMetrics(metricMaker, replicationStatus);
   }
 
@@ -103,6 +118,15 @@ public class SubscriberMetricsTest {
     verify(verLogger).log(A_TEST_PROJECT_NAME_KEY, globalRefDbVersion.get(), replicationLag);
   }
 
+  @Test
+  public void shouldUpdateTheReplicationLagOffTheSubscriberThread() {
+    Event eventMessage = newRefUpdateEvent();
+
+    metrics.updateReplicationStatusMetrics(eventMessage);
+
+    verify(directExecutor).execute(any());
+  }
+
   @Test
   public void
       shouldLogUponProjectDeletionSuccessWhenLocalVersionDoesNotExistAndSubscriberMetricsExist()
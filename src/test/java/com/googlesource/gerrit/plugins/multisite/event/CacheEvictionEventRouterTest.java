@@ -14,20 +14,35 @@
 
 package com.googlesource.gerrit.plugins.multisite.event;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
+import com.google.gerrit.entities.Account;
 import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.registration.DynamicMap;
 import com.google.gerrit.server.events.EventGsonProvider;
 import com.google.gson.Gson;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
 import com.googlesource.gerrit.plugins.multisite.cache.Constants;
+import com.googlesource.gerrit.plugins.multisite.consumer.SubscriberMetrics;
 import com.googlesource.gerrit.plugins.multisite.forwarder.CacheEntry;
-import com.googlesource.gerrit.plugins.multisite.forwarder.CacheKeyJsonParser;
+import com.googlesource.gerrit.plugins.multisite.forwarder.CacheEvictionPriority;
+import com.googlesource.gerrit.plugins.multisite.forwarder.CacheKeyDecoderRegistry;
+import com.googlesource.gerrit.plugins.multisite.forwarder.CacheNotFoundException;
 import com.googlesource.gerrit.plugins.multisite.forwarder.ForwardedCacheEvictionHandler;
 import com.googlesource.gerrit.plugins.multisite.forwarder.events.CacheEvictionEvent;
 import com.googlesource.gerrit.plugins.multisite.forwarder.router.CacheEvictionEventRouter;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import org.eclipse.jgit.lib.Config;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -38,10 +53,12 @@ public class CacheEvictionEventRouterTest {
   private static Gson gson = new EventGsonProvider().get();
   private CacheEvictionEventRouter router;
   @Mock private ForwardedCacheEvictionHandler cacheEvictionHandler;
+  @Mock private ScheduledExecutorService applyExecutorMock;
+  @Mock private SubscriberMetrics subscriberMetricsMock;
 
   @Before
   public void setUp() {
-    router = new CacheEvictionEventRouter(cacheEvictionHandler, new CacheKeyJsonParser(gson));
+    router = newRouter(new Config());
   }
 
   @Test
@@ -49,7 +66,8 @@ public class CacheEvictionEventRouterTest {
     final CacheEvictionEvent event = new CacheEvictionEvent("cache", "key", INSTANCE_ID);
     router.route(event);
 
-    verify(cacheEvictionHandler).evict(CacheEntry.from(event.cacheName, event.key));
+    verify(cacheEvictionHandler)
+        .evict(CacheEntry.from(event.cacheName, event.key), INSTANCE_ID, event.evictedOn);
   }
 
   @Test
@@ -58,7 +76,8 @@ public class CacheEvictionEventRouterTest {
     final CacheEvictionEvent event = new CacheEvictionEvent("cache", "some/key", INSTANCE_ID);
     router.route(event);
 
-    verify(cacheEvictionHandler).evict(CacheEntry.from(event.cacheName, event.key));
+    verify(cacheEvictionHandler)
+        .evict(CacheEntry.from(event.cacheName, event.key), INSTANCE_ID, event.evictedOn);
   }
 
   @Test
@@ -69,6 +88,101 @@ public class CacheEvictionEventRouterTest {
     router.route(event);
 
     verify(cacheEvictionHandler)
-        .evict(CacheEntry.from(event.cacheName, Project.nameKey((String) event.key)));
+        .evict(
+            CacheEntry.from(event.cacheName, Project.nameKey((String) event.key)),
+            INSTANCE_ID,
+            event.evictedOn);
+  }
+
+  @Test
+  public void routerShouldSendMultiKeyEventsToTheAppropriateHandler() throws Exception {
+    final CacheEvictionEvent event =
+        CacheEvictionEvent.forKeys(
+            Constants.ACCOUNTS, List.of("{\"id\":1}", "{\"id\":2}"), INSTANCE_ID);
+    router.route(event);
+
+    verify(cacheEvictionHandler)
+        .evictAll(
+            CacheEntry.from(event.cacheName, null),
+            List.of(Account.id(1), Account.id(2)),
+            INSTANCE_ID,
+            event.evictedOn);
+  }
+
+  @Test
+  public void routerShouldSendAllKeysEventsToTheAppropriateHandler() throws Exception {
+    final CacheEvictionEvent event = CacheEvictionEvent.forAllKeys(Constants.GROUPS, INSTANCE_ID);
+    router.route(event);
+
+    verify(cacheEvictionHandler)
+        .evictAll(CacheEntry.from(event.cacheName, null), event.evictedOn);
+  }
+
+  @Test
+  public void routerShouldApplyHighPriorityEventsImmediately() throws Exception {
+    router = newRouter(highPriorityConfig());
+    final CacheEvictionEvent event = new CacheEvictionEvent("sshkeys", "key", INSTANCE_ID);
+    router.route(event);
+
+    verify(cacheEvictionHandler)
+        .evict(CacheEntry.from(event.cacheName, event.key), INSTANCE_ID, event.evictedOn);
+    verifyNoInteractions(applyExecutorMock);
+  }
+
+  @Test
+  public void routerShouldQueueNormalPriorityEventsWhenPrioritiesAreConfigured() throws Exception {
+    router = newRouter(highPriorityConfig());
+    final CacheEvictionEvent event = new CacheEvictionEvent("cache", "key", INSTANCE_ID);
+    router.route(event);
+
+    verifyNoInteractions(cacheEvictionHandler);
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(applyExecutorMock).execute(task.capture());
+    task.getValue().run();
+    verify(cacheEvictionHandler)
+        .evict(CacheEntry.from(event.cacheName, event.key), INSTANCE_ID, event.evictedOn);
+  }
+
+  @Test
+  public void routerShouldCountTheFailuresOfTheQueuedEvents() throws Exception {
+    router = newRouter(highPriorityConfig());
+    final CacheEvictionEvent event = new CacheEvictionEvent("cache", "key", INSTANCE_ID);
+    doThrow(new CacheNotFoundException("gerrit", "cache"))
+        .when(cacheEvictionHandler)
+        .evict(any(), any(), anyLong());
+    router.route(event);
+
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(applyExecutorMock).execute(task.capture());
+    task.getValue().run();
+    verify(subscriberMetricsMock).incrementSubscriberFailedToConsumeMessage();
+  }
+
+  @Test
+  public void routerShouldApplyNormalPriorityEventsImmediatelyWhenStopping() throws Exception {
+    router = newRouter(highPriorityConfig());
+    final CacheEvictionEvent event = new CacheEvictionEvent("cache", "key", INSTANCE_ID);
+    doThrow(new RejectedExecutionException()).when(applyExecutorMock).execute(any());
+    router.route(event);
+
+    verify(cacheEvictionHandler)
+        .evict(CacheEntry.from(event.cacheName, event.key), INSTANCE_ID, event.evictedOn);
+  }
+
+  private CacheEvictionEventRouter newRouter(Config multiSiteConfig) {
+    Configuration config = new Configuration(multiSiteConfig, new Config());
+    return new CacheEvictionEventRouter(
+        cacheEvictionHandler,
+        new CacheKeyDecoderRegistry(gson, DynamicMap.emptyMap()),
+        new CacheEvictionPriority(config),
+        applyExecutorMock,
+        subscriberMetricsMock,
+        config);
+  }
+
+  private static Config highPriorityConfig() {
+    Config cfg = new Config();
+    cfg.setStringList("cache", null, "highPriority", List.of("^groups.*", "sshkeys"));
+    return cfg;
   }
 }
@@ -0,0 +1,80 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.event;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.gerritforge.gerrit.eventbroker.publisher.StreamEventPublisher;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.events.ProjectCreatedEvent;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import java.util.List;
+import org.eclipse.jgit.lib.Config;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FilteredStreamEventPublisherTest {
+  private static final String INSTANCE_ID = "instance-id";
+
+  @Mock private StreamEventPublisher publisherMock;
+
+  @Test
+  public void shouldNotPublishTheFilteredLocalEvents() {
+    ProjectCreatedEvent event = projectCreated(INSTANCE_ID);
+
+    newPublisher(INSTANCE_ID).onEvent(event);
+
+    verify(publisherMock, never()).onEvent(event);
+  }
+
+  @Test
+  public void shouldPassOnTheEventsReceivedFromOtherSites() {
+    ProjectCreatedEvent event = projectCreated("other-instance-id");
+
+    newPublisher(INSTANCE_ID).onEvent(event);
+
+    verify(publisherMock).onEvent(event);
+  }
+
+  @Test
+  public void shouldFilterLocalEventsWhenTheInstanceIdIsNotConfigured() {
+    ProjectCreatedEvent event = projectCreated(null);
+
+    newPublisher(null).onEvent(event);
+
+    verify(publisherMock, never()).onEvent(event);
+  }
+
+  private FilteredStreamEventPublisher newPublisher(String instanceId) {
+    Config cfg = new Config();
+    cfg.setStringList("event", null, "publishType", List.of("ref-updated"));
+    return new FilteredStreamEventPublisher(
+        publisherMock,
+        new StreamEventFilter(new Configuration(cfg, new Config())),
+        new StreamEventFilterMetrics(new DisabledMetricMaker()),
+        instanceId);
+  }
+
+  private static ProjectCreatedEvent projectCreated(String instanceId) {
+    ProjectCreatedEvent event = new ProjectCreatedEvent();
+    event.projectName = "foo";
+    event.instanceId = instanceId;
+    return event;
+  }
+}
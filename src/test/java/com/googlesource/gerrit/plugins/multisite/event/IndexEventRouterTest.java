@@ -36,6 +36,7 @@ import com.googlesource.gerrit.plugins.multisite.forwarder.events.ProjectIndexEv
 import com.googlesource.gerrit.plugins.multisite.forwarder.router.IndexEventRouter;
 import com.googlesource.gerrit.plugins.multisite.forwarder.router.StreamEventRouter;
 import com.googlesource.gerrit.plugins.replication.events.RefReplicationDoneEvent;
+import java.util.Optional;
 import org.eclipse.jgit.lib.ObjectId;
 import org.junit.Before;
 import org.junit.Test;
@@ -77,7 +78,8 @@ public class IndexEventRouterTest {
 
   @Test
   public void streamEventRouterShouldTriggerAccountIndexFlush() throws Exception {
-    StreamEventRouter streamEventRouter = new StreamEventRouter(forwardedEventHandler, router);
+    StreamEventRouter streamEventRouter =
+        new StreamEventRouter(forwardedEventHandler, router, Optional.empty());
 
     final AccountIndexEvent event = new AccountIndexEvent(1, INSTANCE_ID);
     router.route(event);
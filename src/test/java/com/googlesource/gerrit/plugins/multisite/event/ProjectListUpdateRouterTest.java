@@ -14,11 +14,17 @@
 
 package com.googlesource.gerrit.plugins.multisite.event;
 
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import com.gerritforge.gerrit.globalrefdb.validation.ProjectsFilter;
 import com.googlesource.gerrit.plugins.multisite.forwarder.ForwardedProjectListUpdateHandler;
 import com.googlesource.gerrit.plugins.multisite.forwarder.events.ProjectListUpdateEvent;
 import com.googlesource.gerrit.plugins.multisite.forwarder.router.ProjectListUpdateRouter;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -30,10 +36,11 @@ public class ProjectListUpdateRouterTest {
 
   private ProjectListUpdateRouter router;
   @Mock private ForwardedProjectListUpdateHandler projectListUpdateHandler;
+  @Mock private ProjectsFilter projectsFilter;
 
   @Before
   public void setUp() {
-    router = new ProjectListUpdateRouter(projectListUpdateHandler);
+    router = new ProjectListUpdateRouter(projectListUpdateHandler, projectsFilter);
   }
 
   @Test
@@ -44,4 +51,20 @@ public class ProjectListUpdateRouterTest {
 
     verify(projectListUpdateHandler).update(event);
   }
+
+  @Test
+  public void routerShouldSendOnlyTheMatchingProjectsOfBatchesToTheHandler() throws Exception {
+    when(projectsFilter.matches(anyString())).thenAnswer(i -> "kept".equals(i.getArgument(0)));
+    final ProjectListUpdateEvent event =
+        ProjectListUpdateEvent.forProjects(
+            List.of("kept", "filtered"), List.of("filtered"), "instance-id");
+    router.route(event);
+
+    verify(projectListUpdateHandler)
+        .update(
+            argThat(
+                e -> e.addedProjects.equals(List.of("kept")) && e.removedProjects.isEmpty()));
+    assertThat(event.addedProjects).containsExactly("kept", "filtered");
+    assertThat(event.removedProjects).containsExactly("filtered");
+  }
 }
@@ -0,0 +1,91 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.event;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Suppliers;
+import com.google.gerrit.server.data.RefUpdateAttribute;
+import com.google.gerrit.server.events.ProjectCreatedEvent;
+import com.google.gerrit.server.events.RefUpdatedEvent;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import java.util.List;
+import org.eclipse.jgit.lib.Config;
+import org.junit.Test;
+
+public class StreamEventFilterTest {
+
+  @Test
+  public void shouldPublishAllEventsWithoutFilters() {
+    StreamEventFilter filter = newFilter(new Config());
+
+    assertThat(filter.shouldPublish(refUpdated("foo", "refs/changes/01/1/1"))).isTrue();
+    assertThat(filter.shouldPublish(projectCreated("foo"))).isTrue();
+  }
+
+  @Test
+  public void shouldPublishOnlyTheAllowedEventTypes() {
+    Config cfg = new Config();
+    cfg.setStringList("event", null, "publishType", List.of("project-created"));
+    StreamEventFilter filter = newFilter(cfg);
+
+    assertThat(filter.shouldPublish(projectCreated("foo"))).isTrue();
+    assertThat(filter.shouldPublish(refUpdated("foo", "refs/heads/master"))).isFalse();
+  }
+
+  @Test
+  public void shouldPublishOnlyTheEventsOfTheAllowedProjects() {
+    Config cfg = new Config();
+    cfg.setStringList("event", null, "publishProject", List.of("^team/.*", "infra*", "bar"));
+    StreamEventFilter filter = newFilter(cfg);
+
+    assertThat(filter.shouldPublish(projectCreated("team/foo"))).isTrue();
+    assertThat(filter.shouldPublish(projectCreated("infra-tools"))).isTrue();
+    assertThat(filter.shouldPublish(projectCreated("bar"))).isTrue();
+    assertThat(filter.shouldPublish(projectCreated("barbaz"))).isFalse();
+    assertThat(filter.shouldPublish(projectCreated("foo"))).isFalse();
+  }
+
+  @Test
+  public void shouldNotPublishTheEventsOfSkippedRefs() {
+    Config cfg = new Config();
+    cfg.setStringList("event", null, "skipRefPrefix", List.of("refs/changes/", "refs/cache-"));
+    StreamEventFilter filter = newFilter(cfg);
+
+    assertThat(filter.shouldPublish(refUpdated("foo", "refs/changes/01/1/1"))).isFalse();
+    assertThat(filter.shouldPublish(refUpdated("foo", "refs/cache-automerge/01"))).isFalse();
+    assertThat(filter.shouldPublish(refUpdated("foo", "refs/heads/master"))).isTrue();
+    assertThat(filter.shouldPublish(projectCreated("foo"))).isTrue();
+  }
+
+  private static StreamEventFilter newFilter(Config multiSiteConfig) {
+    return new StreamEventFilter(new Configuration(multiSiteConfig, new Config()));
+  }
+
+  private static RefUpdatedEvent refUpdated(String project, String refName) {
+    RefUpdateAttribute refUpdate = new RefUpdateAttribute();
+    refUpdate.project = project;
+    refUpdate.refName = refName;
+    RefUpdatedEvent event = new RefUpdatedEvent();
+    event.refUpdate = Suppliers.ofInstance(refUpdate);
+    return event;
+  }
+
+  private static ProjectCreatedEvent projectCreated(String project) {
+    ProjectCreatedEvent event = new ProjectCreatedEvent();
+    event.projectName = project;
+    return event;
+  }
+}
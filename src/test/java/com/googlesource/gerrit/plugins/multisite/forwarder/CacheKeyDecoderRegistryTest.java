@@ -19,49 +19,52 @@ import static com.google.common.truth.Truth.assertThat;
 import com.google.gerrit.entities.Account;
 import com.google.gerrit.entities.AccountGroup;
 import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.registration.DynamicMap;
 import com.google.gerrit.server.events.EventGsonProvider;
 import com.google.gson.Gson;
 import com.googlesource.gerrit.plugins.multisite.cache.Constants;
+import java.util.Map;
 import org.junit.Test;
 
-public class CacheKeyJsonParserTest {
+public class CacheKeyDecoderRegistryTest {
   private static final Object EMPTY_JSON = "{}";
 
   private final Gson gson = new EventGsonProvider().get();
-  private final CacheKeyJsonParser gsonParser = new CacheKeyJsonParser(gson);
+  private final CacheKeyDecoderRegistry keyDecoders =
+      new CacheKeyDecoderRegistry(gson, DynamicMap.emptyMap());
 
   @Test
   public void accountIDParse() {
     Account.Id accountId = Account.id(1);
     String json = gson.toJson(accountId);
-    assertThat(accountId).isEqualTo(gsonParser.from(Constants.ACCOUNTS, json));
+    assertThat(accountId).isEqualTo(keyDecoders.decode(Constants.ACCOUNTS, json));
   }
 
   @Test
   public void accountGroupIDParse() {
     AccountGroup.Id accountGroupId = AccountGroup.id(1);
     String json = gson.toJson(accountGroupId);
-    assertThat(accountGroupId).isEqualTo(gsonParser.from(Constants.GROUPS, json));
+    assertThat(accountGroupId).isEqualTo(keyDecoders.decode(Constants.GROUPS, json));
   }
 
   @Test
   public void accountGroupUUIDParse() {
     AccountGroup.UUID accountGroupUuid = AccountGroup.uuid("abc123");
     String json = gson.toJson(accountGroupUuid);
-    assertThat(accountGroupUuid).isEqualTo(gsonParser.from(Constants.GROUPS_BYINCLUDE, json));
+    assertThat(accountGroupUuid).isEqualTo(keyDecoders.decode(Constants.GROUPS_BYINCLUDE, json));
   }
 
   @Test
   public void projectNameKeyParse() {
     String projectNameString = "foo";
     Project.NameKey projectNameKey = Project.nameKey(projectNameString);
-    assertThat(projectNameKey).isEqualTo(gsonParser.from(Constants.PROJECTS, projectNameString));
+    assertThat(projectNameKey).isEqualTo(keyDecoders.decode(Constants.PROJECTS, projectNameString));
   }
 
   @Test
   public void stringParse() {
     String key = "key";
-    assertThat(key).isEqualTo(gsonParser.from("any-cache-with-string-key", key));
+    assertThat(key).isEqualTo(keyDecoders.decode("any-cache-with-string-key", key));
   }
 
   @Test
@@ -70,4 +73,19 @@ public class CacheKeyJsonParserTest {
     String json = gson.toJson(object);
     assertThat(json).isEqualTo(EMPTY_JSON);
   }
+
+  @Test
+  public void accountIDParseFromDeserializedEvent() {
+    Account.Id accountId = Account.id(1);
+    Object key = gson.fromJson(gson.toJson(accountId), Object.class);
+    assertThat(key).isInstanceOf(Map.class);
+    assertThat(accountId).isEqualTo(keyDecoders.decode(Constants.ACCOUNTS, key));
+  }
+
+  @Test
+  public void accountGroupUUIDParseFromDeserializedEvent() {
+    AccountGroup.UUID accountGroupUuid = AccountGroup.uuid("abc123");
+    Object key = gson.fromJson(gson.toJson(accountGroupUuid), Object.class);
+    assertThat(accountGroupUuid).isEqualTo(keyDecoders.decode(Constants.GROUPS_MEMBERS, key));
+  }
 }
@@ -16,13 +16,28 @@ package com.googlesource.gerrit.plugins.multisite.forwarder;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.gerrit.testing.GerritJUnit.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.gerrit.entities.Account;
 import com.google.gerrit.extensions.registration.DynamicMap;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
 import com.googlesource.gerrit.plugins.multisite.cache.Constants;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jgit.lib.Config;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -33,15 +48,19 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ForwardedCacheEvictionHandlerTest {
+  private static final String ORIGIN_INSTANCE_ID = "origin-instance-id";
 
   @Rule public ExpectedException exception = ExpectedException.none();
   @Mock private DynamicMap<Cache<?, ?>> cacheMapMock;
+  @Mock private ScheduledExecutorService executorMock;
+  @Mock private CacheRefreshAheadMetrics refreshAheadMetricsMock;
+  @Mock private CacheEvictionMetrics evictionMetricsMock;
   private Cache<Object, Object> cacheUnderTest;
   private ForwardedCacheEvictionHandler handler;
 
   @Before
   public void setUp() throws Exception {
-    handler = new ForwardedCacheEvictionHandler(cacheMapMock);
+    handler = newHandler(new Config());
     cacheUnderTest = CacheBuilder.newBuilder().build();
   }
 
@@ -68,14 +87,192 @@ public class ForwardedCacheEvictionHandlerTest {
   }
 
   @Test
-  public void testSuccessfulProjectListCacheEviction() throws Exception {
+  public void testProjectListCacheEvictionIsIgnored() throws Exception {
     CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.PROJECT_LIST, null);
     cacheUnderTest.put("foo", new Object());
     cacheUnderTest.put("bar", new Object());
     doReturn(cacheUnderTest).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
 
     handler.evict(entry);
-    assertThat(cacheUnderTest.getIfPresent("foo")).isNull();
-    assertThat(cacheUnderTest.getIfPresent("bar")).isNull();
+    assertThat(cacheUnderTest.getIfPresent("foo")).isNotNull();
+    assertThat(cacheUnderTest.getIfPresent("bar")).isNotNull();
+  }
+
+  @Test
+  public void testSuccessfulMultiKeyCacheEviction() throws Exception {
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, null);
+    cacheUnderTest.put(Account.id(1), new Object());
+    cacheUnderTest.put(Account.id(2), new Object());
+    cacheUnderTest.put(Account.id(3), new Object());
+    doReturn(cacheUnderTest).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+
+    handler.evictAll(entry, List.of(Account.id(1), Account.id(2)));
+    assertThat(cacheUnderTest.asMap().keySet()).containsExactly(Account.id(3));
+  }
+
+  @Test
+  public void testSuccessfulAllKeysCacheEviction() throws Exception {
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, null);
+    cacheUnderTest.put(Account.id(1), new Object());
+    cacheUnderTest.put(Account.id(2), new Object());
+    doReturn(cacheUnderTest).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+
+    handler.evictAll(entry);
+    assertThat(cacheUnderTest.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldReloadHotEntriesOfRefreshAheadCaches() throws Exception {
+    Config cfg = new Config();
+    cfg.setStringList(
+        "cache", null, "refreshAhead", List.of(Constants.ACCOUNTS, Constants.PROJECTS));
+    handler = newHandler(cfg);
+    AtomicInteger loads = new AtomicInteger();
+    LoadingCache<Object, Object> loadingCache =
+        CacheBuilder.newBuilder()
+            .build(CacheLoader.from(key -> "value-" + loads.incrementAndGet()));
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, null);
+    doReturn(loadingCache).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+    loadingCache.get(Account.id(1));
+
+    handler.evictAll(entry, List.of(Account.id(1), Account.id(2)));
+
+    assertThat(loadingCache.asMap()).containsExactly(Account.id(1), "value-2");
+    verify(refreshAheadMetricsMock).incrementReload(Constants.ACCOUNTS);
+    verify(refreshAheadMetricsMock).incrementReloaded(Constants.ACCOUNTS);
+  }
+
+  @Test
+  public void shouldDelayTheReloadOfHotEntries() throws Exception {
+    Config cfg = new Config();
+    cfg.setStringList("cache", null, "refreshAhead", List.of(Constants.ACCOUNTS));
+    cfg.setString("cache", null, "refreshAheadDelay", "10 s");
+    handler = newHandler(cfg);
+    LoadingCache<Object, Object> loadingCache =
+        CacheBuilder.newBuilder().build(CacheLoader.from(key -> "value"));
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, Account.id(1));
+    doReturn(loadingCache).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+    loadingCache.get(Account.id(1));
+
+    handler.evict(entry);
+
+    verify(executorMock).schedule(any(Runnable.class), eq(10000L), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void shouldNotReloadEntriesOfOtherCaches() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    LoadingCache<Object, Object> loadingCache =
+        CacheBuilder.newBuilder()
+            .build(CacheLoader.from(key -> "value-" + loads.incrementAndGet()));
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, Account.id(1));
+    doReturn(loadingCache).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+    loadingCache.get(Account.id(1));
+
+    handler.evict(entry);
+
+    assertThat(loadingCache.size()).isEqualTo(0);
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldSkipEvictionsOlderThanTheLastOneAppliedFromTheSameNode() throws Exception {
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, Account.id(123));
+    doReturn(cacheUnderTest).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+    handler.evict(entry, ORIGIN_INSTANCE_ID, 2000L);
+    cacheUnderTest.put(entry.getKey(), new Object());
+
+    handler.evict(entry, ORIGIN_INSTANCE_ID, 1000L);
+    assertThat(cacheUnderTest.getIfPresent(entry.getKey())).isNotNull();
+    verify(evictionMetricsMock).incrementStaleEviction(Constants.ACCOUNTS);
+
+    handler.evict(entry, ORIGIN_INSTANCE_ID, 3000L);
+    assertThat(cacheUnderTest.getIfPresent(entry.getKey())).isNull();
+  }
+
+  @Test
+  public void shouldNotCompareEvictionTimesAcrossNodes() throws Exception {
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, Account.id(123));
+    doReturn(cacheUnderTest).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+    handler.evict(entry, ORIGIN_INSTANCE_ID, 2000L);
+    cacheUnderTest.put(entry.getKey(), new Object());
+
+    handler.evict(entry, "other-instance-id", 1000L);
+    assertThat(cacheUnderTest.getIfPresent(entry.getKey())).isNull();
+    verify(evictionMetricsMock, never()).incrementStaleEviction(anyString());
+  }
+
+  @Test
+  public void shouldApplyEvictionsFromTheSameNodeWithinTheSameMillisecond() throws Exception {
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, Account.id(123));
+    doReturn(cacheUnderTest).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+    handler.evict(entry, ORIGIN_INSTANCE_ID, 2000L);
+    cacheUnderTest.put(entry.getKey(), new Object());
+
+    handler.evict(entry, ORIGIN_INSTANCE_ID, 2000L);
+    assertThat(cacheUnderTest.getIfPresent(entry.getKey())).isNull();
+  }
+
+  @Test
+  public void shouldSkipOnlyTheStaleKeysOfMultiKeyEvictions() throws Exception {
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, null);
+    doReturn(cacheUnderTest).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+    handler.evictAll(entry, List.of(Account.id(1)), ORIGIN_INSTANCE_ID, 2000L);
+    cacheUnderTest.put(Account.id(1), new Object());
+    cacheUnderTest.put(Account.id(2), new Object());
+
+    handler.evictAll(entry, List.of(Account.id(1), Account.id(2)), ORIGIN_INSTANCE_ID, 1000L);
+    assertThat(cacheUnderTest.asMap().keySet()).containsExactly(Account.id(1));
+  }
+
+  @Test
+  public void shouldApplyEvictionsWithoutTimestamp() throws Exception {
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, Account.id(123));
+    doReturn(cacheUnderTest).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+    handler.evict(entry, ORIGIN_INSTANCE_ID, 2000L);
+    cacheUnderTest.put(entry.getKey(), new Object());
+
+    handler.evict(entry, ORIGIN_INSTANCE_ID, 0L);
+    assertThat(cacheUnderTest.getIfPresent(entry.getKey())).isNull();
+  }
+
+  @Test
+  public void shouldRecordThePropagationLatencyOfReceivedEvictions() throws Exception {
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, Account.id(123));
+    doReturn(cacheUnderTest).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+
+    handler.evict(entry, ORIGIN_INSTANCE_ID, System.currentTimeMillis() - 1000L);
+    verify(evictionMetricsMock).incrementReceivedEviction(Constants.ACCOUNTS);
+    verify(evictionMetricsMock).recordPropagationLatency(eq(Constants.ACCOUNTS), anyLong());
+  }
+
+  @Test
+  public void shouldNotRecordThePropagationLatencyOfEvictionsWithoutTimestamp() throws Exception {
+    CacheEntry entry = new CacheEntry(Constants.GERRIT, Constants.ACCOUNTS, null);
+    doReturn(cacheUnderTest).when(cacheMapMock).get(entry.getPluginName(), entry.getCacheName());
+
+    handler.evictAll(entry);
+    verify(evictionMetricsMock).incrementReceivedEviction(Constants.ACCOUNTS);
+    verify(evictionMetricsMock, never()).recordPropagationLatency(anyString(), anyLong());
+  }
+
+  private ForwardedCacheEvictionHandler newHandler(Config multiSiteConfig) {
+    lenient()
+        .doAnswer(
+            invocation -> {
+              invocation.<Runnable>getArgument(0).run();
+              return null;
+            })
+        .when(executorMock)
+        .schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    return new ForwardedCacheEvictionHandler(
+        cacheMapMock,
+        new CacheRefreshAhead(
+            new Configuration(multiSiteConfig, new Config()),
+            executorMock,
+            refreshAheadMetricsMock),
+        new CacheInvalidationTimes(),
+        evictionMetricsMock,
+        new CacheEvictionPriority(new Configuration(multiSiteConfig, new Config())));
   }
 }
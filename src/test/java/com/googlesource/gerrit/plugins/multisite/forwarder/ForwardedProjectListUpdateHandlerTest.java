@@ -22,6 +22,7 @@ import static org.mockito.Mockito.verify;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.server.project.ProjectCache;
 import com.googlesource.gerrit.plugins.multisite.forwarder.events.ProjectListUpdateEvent;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -142,4 +143,15 @@ public class ForwardedProjectListUpdateHandlerTest {
 
     verify(projectCacheMock).remove(PROJECT_KEY);
   }
+
+  @Test
+  public void shouldApplyBatchedUpdatesThroughTheProjectCache() throws Exception {
+    handler.update(
+        ProjectListUpdateEvent.forProjects(
+            List.of("added1", "added2"), List.of("removed"), INSTANCE_ID));
+
+    verify(projectCacheMock).onCreateProject(Project.nameKey("added1"));
+    verify(projectCacheMock).onCreateProject(Project.nameKey("added2"));
+    verify(projectCacheMock).remove(Project.nameKey("removed"));
+  }
 }
@@ -0,0 +1,110 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.forwarder;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.registration.DynamicMap;
+import com.google.gerrit.server.project.ProjectCache;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import com.googlesource.gerrit.plugins.multisite.cache.Constants;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.lib.Config;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProjectListRebuilderTest {
+  @Mock private DynamicMap<Cache<?, ?>> cacheMapMock;
+  @Mock private ProjectCache projectCacheMock;
+  @Mock private ScheduledExecutorService executorMock;
+
+  @Test
+  public void shouldScheduleHourlyRebuildByDefault() {
+    newRebuilder(new Config()).start();
+
+    verify(executorMock)
+        .scheduleAtFixedRate(
+            any(), anyLong(), eq(TimeUnit.HOURS.toMillis(1)), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void shouldNotScheduleRebuildWhenDisabled() {
+    Config cfg = new Config();
+    cfg.setString("cache", null, "projectListRebuildInterval", "0");
+
+    newRebuilder(cfg).start();
+
+    verifyNoInteractions(executorMock);
+  }
+
+  @Test
+  public void shouldScheduleRebuildAtTheConfiguredInterval() {
+    Config cfg = new Config();
+    cfg.setString("cache", null, "projectListRebuildInterval", "1 h");
+
+    newRebuilder(cfg).start();
+
+    verify(executorMock)
+        .scheduleAtFixedRate(
+            any(), anyLong(), eq(TimeUnit.HOURS.toMillis(1)), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void shouldInvalidateAndReloadTheProjectList() {
+    Cache<Object, Object> projectList = CacheBuilder.newBuilder().build();
+    projectList.put("ALL", ImmutableSortedSet.of(Project.nameKey("stale")));
+    doReturn(projectList).when(cacheMapMock).get(Constants.GERRIT, Constants.PROJECT_LIST);
+    when(projectCacheMock.all()).thenReturn(ImmutableSortedSet.of(Project.nameKey("foo")));
+
+    newRebuilder(new Config()).rebuild();
+
+    assertThat(projectList.size()).isEqualTo(0);
+    verify(projectCacheMock).all();
+  }
+
+  @Test
+  public void shouldNotPropagateTheRebuildFailures() {
+    Cache<Object, Object> projectList = CacheBuilder.newBuilder().build();
+    doReturn(projectList).when(cacheMapMock).get(Constants.GERRIT, Constants.PROJECT_LIST);
+    when(projectCacheMock.all()).thenThrow(new IllegalStateException("test"));
+
+    newRebuilder(new Config()).rebuild();
+
+    verify(projectCacheMock).all();
+  }
+
+  private ProjectListRebuilder newRebuilder(Config multiSiteConfig) {
+    return new ProjectListRebuilder(
+        cacheMapMock,
+        projectCacheMock,
+        executorMock,
+        new Configuration(multiSiteConfig, new Config()));
+  }
+}
@@ -15,8 +15,11 @@
 package com.googlesource.gerrit.plugins.multisite.http;
 
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.net.HttpHeaders.ETAG;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
 import static com.google.common.truth.Truth.assertThat;
 import static com.googlesource.gerrit.plugins.multisite.http.HttpModule.LAG_ENDPOINT_SEGMENT;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
 import static org.junit.Assume.assumeTrue;
 
 import com.gerritforge.gerrit.globalrefdb.validation.Log4jSharedRefLogger;
@@ -44,7 +47,11 @@ import com.googlesource.gerrit.plugins.multisite.forwarder.router.RouterModule;
 import com.googlesource.gerrit.plugins.multisite.index.IndexModule;
 import com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate;
 import com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdateImpl;
+import com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionUpdateExecutor;
+import com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionUpdateExecutorProvider;
 import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import org.apache.http.message.BasicHeader;
 import org.eclipse.jgit.lib.Config;
 import org.junit.Before;
 import org.junit.Test;
@@ -81,6 +88,9 @@ public class ReplicationStatusServletIT extends LightweightPluginDaemonTest {
           .setBinding()
           .to(ProjectVersionRefUpdateImpl.class)
           .in(Scopes.SINGLETON);
+      bind(ScheduledExecutorService.class)
+          .annotatedWith(ProjectVersionUpdateExecutor.class)
+          .toProvider(ProjectVersionUpdateExecutorProvider.class);
     }
   }
 
@@ -149,6 +159,65 @@ public class ReplicationStatusServletIT extends LightweightPluginDaemonTest {
     assertThat(contentWithoutMagicJson(result)).isEqualTo("{\"baz\":3,\"foo\":2}");
   }
 
+  @Test
+  @GerritConfig(name = "gerrit.instanceId", value = "testInstanceId")
+  public void shouldFilterAndPageTheProjects() throws Exception {
+    assumeReplicationLagEnabled();
+    replicationStatus.doUpdateLag(Project.nameKey("team/bar"), 1L);
+    replicationStatus.doUpdateLag(Project.nameKey("team/foo"), 2L);
+    replicationStatus.doUpdateLag(Project.nameKey("team/baz"), 3L);
+    replicationStatus.doUpdateLag(Project.nameKey("other"), 4L);
+
+    RestResponse result =
+        adminRestSession.get(
+            String.format("%s?prefix=team/&minLag=2&offset=1&limit=5", LAG_ENDPOINT));
+
+    result.assertOK();
+    assertThat(contentWithoutMagicJson(result)).isEqualTo("{\"team/foo\":2}");
+  }
+
+  @Test
+  @GerritConfig(name = "gerrit.instanceId", value = "testInstanceId")
+  public void shouldRejectInvalidNumericParameters() throws Exception {
+    assumeReplicationLagEnabled();
+
+    adminRestSession.get(String.format("%s?limit=foo", LAG_ENDPOINT)).assertBadRequest();
+    adminRestSession.get(String.format("%s?limit=-1", LAG_ENDPOINT)).assertBadRequest();
+    adminRestSession.get(String.format("%s?offset=-1", LAG_ENDPOINT)).assertBadRequest();
+    adminRestSession.get(String.format("%s?minLag=foo", LAG_ENDPOINT)).assertBadRequest();
+  }
+
+  @Test
+  @GerritConfig(name = "gerrit.instanceId", value = "testInstanceId")
+  public void shouldAcceptANegativeMinLag() throws Exception {
+    assumeReplicationLagEnabled();
+    replicationStatus.doUpdateLag(Project.nameKey("foo"), -5L);
+    replicationStatus.doUpdateLag(Project.nameKey("bar"), -20L);
+
+    RestResponse result = adminRestSession.get(String.format("%s?minLag=-10", LAG_ENDPOINT));
+
+    result.assertOK();
+    assertThat(contentWithoutMagicJson(result)).isEqualTo("{\"foo\":-5}");
+  }
+
+  @Test
+  @GerritConfig(name = "gerrit.instanceId", value = "testInstanceId")
+  public void shouldReturnNotModifiedWhenTheLagsHaveNotChanged() throws Exception {
+    assumeReplicationLagEnabled();
+    replicationStatus.doUpdateLag(Project.nameKey("foo"), 123L);
+    String etag = adminRestSession.get(LAG_ENDPOINT).getHeader(ETAG);
+
+    RestResponse notModified =
+        adminRestSession.getWithHeaders(LAG_ENDPOINT, new BasicHeader(IF_NONE_MATCH, etag));
+    notModified.assertStatus(SC_NOT_MODIFIED);
+
+    replicationStatus.doUpdateLag(Project.nameKey("foo"), 124L);
+    RestResponse modified =
+        adminRestSession.getWithHeaders(LAG_ENDPOINT, new BasicHeader(IF_NONE_MATCH, etag));
+    modified.assertOK();
+    assertThat(modified.getHeader(ETAG)).isNotEqualTo(etag);
+  }
+
   private String contentWithoutMagicJson(RestResponse response) throws IOException {
     return response.getEntityContent().substring(RestApiServlet.JSON_MAGIC.length);
   }
@@ -0,0 +1,65 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class HybridLogicalClockTest {
+  private static final long A_WALL_TIME = 1000L;
+
+  private final AtomicLong wallTime = new AtomicLong(A_WALL_TIME);
+  private final HybridLogicalClock clock = new HybridLogicalClock(wallTime::get);
+
+  @Test
+  public void shouldFollowTheWallClockWhenItAdvances() {
+    assertThat(clock.tick()).isEqualTo(A_WALL_TIME);
+
+    wallTime.set(A_WALL_TIME + 10);
+    assertThat(clock.tick()).isEqualTo(A_WALL_TIME + 10);
+  }
+
+  @Test
+  public void shouldStayMonotonicWhenTheWallClockDoesNotAdvance() {
+    long first = clock.tick();
+    long second = clock.tick();
+
+    wallTime.set(A_WALL_TIME - 100);
+    long third = clock.tick();
+
+    assertThat(second).isGreaterThan(first);
+    assertThat(third).isGreaterThan(second);
+  }
+
+  @Test
+  public void shouldGenerateVersionsAheadOfTheObservedRemoteVersions() {
+    long remoteVersion = A_WALL_TIME + 5000;
+
+    clock.observe(remoteVersion);
+
+    assertThat(clock.tick()).isGreaterThan(remoteVersion);
+  }
+
+  @Test
+  public void shouldIgnoreObservedVersionsOlderThanTheClock() {
+    clock.tick();
+
+    clock.observe(A_WALL_TIME - 5000);
+
+    assertThat(clock.tick()).isEqualTo(A_WALL_TIME + 1);
+  }
+}
@@ -0,0 +1,151 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.when;
+
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import com.googlesource.gerrit.plugins.multisite.validation.LocalRefConvergenceTracker.Filter;
+import com.googlesource.gerrit.plugins.multisite.validation.dfsrefdb.RefFixture;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LocalRefConvergenceTrackerTest implements RefFixture {
+  private static final int FIXED_WAIT_MSEC = 1500;
+
+  @Mock Configuration config;
+  @Mock Configuration.ReplicationFilter replicationFilterConfig;
+
+  private TestRepository<InMemoryRepository> repo;
+  private LocalRefConvergenceTracker tracker;
+
+  @Before
+  public void setUp() throws Exception {
+    repo = new TestRepository<>(new InMemoryRepository(new DfsRepositoryDescription("test")));
+    when(config.replicationFilter()).thenReturn(replicationFilterConfig);
+    tracker =
+        new LocalRefConvergenceTracker(
+            config, new ReplicationFilterMetrics(new DisabledMetricMaker()));
+  }
+
+  @Test
+  public void shouldUseFixedWaitWithoutEnoughSamples() {
+    when(replicationFilterConfig.pushFilterRandomSleepTimeMs()).thenReturn(FIXED_WAIT_MSEC);
+    when(replicationFilterConfig.pushFilterAdaptiveWaitPercentile()).thenReturn(90);
+
+    assertThat(tracker.waitTimeMsec(Filter.PUSH, A_TEST_PROJECT_NAME))
+        .isEqualTo(FIXED_WAIT_MSEC);
+  }
+
+  @Test
+  public void shouldReduceWaitAfterFastConvergences() throws Exception {
+    when(replicationFilterConfig.pushFilterRandomSleepTimeMs()).thenReturn(FIXED_WAIT_MSEC);
+    when(replicationFilterConfig.pushFilterAdaptiveWaitPercentile()).thenReturn(90);
+    repo.branch(A_TEST_REF_NAME).commit().create();
+
+    for (int i = 0; i < LocalRefConvergenceTracker.MIN_SAMPLES; i++) {
+      assertThat(
+              tracker.awaitLocalRefUpdate(
+                  Filter.PUSH,
+                  A_TEST_PROJECT_NAME,
+                  repo.getRepository(),
+                  A_TEST_REF_NAME,
+                  AN_OBJECT_ID_1,
+                  FIXED_WAIT_MSEC))
+          .isTrue();
+    }
+
+    assertThat(tracker.waitTimeMsec(Filter.PUSH, A_TEST_PROJECT_NAME))
+        .isLessThan((long) FIXED_WAIT_MSEC);
+  }
+
+  @Test
+  public void shouldUseFixedWaitWhenAdaptiveWaitIsDisabled() throws Exception {
+    when(replicationFilterConfig.fetchFilterRandomSleepTimeMs()).thenReturn(FIXED_WAIT_MSEC);
+    when(replicationFilterConfig.fetchFilterAdaptiveWaitPercentile()).thenReturn(0);
+    repo.branch(A_TEST_REF_NAME).commit().create();
+
+    for (int i = 0; i < LocalRefConvergenceTracker.MIN_SAMPLES; i++) {
+      tracker.awaitLocalRefUpdate(
+          Filter.FETCH,
+          A_TEST_PROJECT_NAME,
+          repo.getRepository(),
+          A_TEST_REF_NAME,
+          AN_OBJECT_ID_1,
+          FIXED_WAIT_MSEC);
+    }
+
+    assertThat(tracker.waitTimeMsec(Filter.FETCH, A_TEST_PROJECT_NAME))
+        .isEqualTo(FIXED_WAIT_MSEC);
+  }
+
+  @Test
+  public void shouldStopWaitingWhenLocalRefIsNotUpdated() throws Exception {
+    when(replicationFilterConfig.pushFilterMaxSleepTimeMs()).thenReturn(FIXED_WAIT_MSEC);
+    RevCommit localCommit = repo.branch(A_TEST_REF_NAME).commit().create();
+
+    assertThat(
+            tracker.awaitLocalRefUpdate(
+                Filter.PUSH,
+                A_TEST_PROJECT_NAME,
+                repo.getRepository(),
+                A_TEST_REF_NAME,
+                localCommit.getId(),
+                10L))
+        .isFalse();
+  }
+
+  @Test
+  public void shouldIncreaseWaitAfterFetchTimeouts() throws Exception {
+    when(replicationFilterConfig.fetchFilterRandomSleepTimeMs()).thenReturn(FIXED_WAIT_MSEC);
+    when(replicationFilterConfig.fetchFilterMaxSleepTimeMs()).thenReturn(FIXED_WAIT_MSEC);
+    when(replicationFilterConfig.fetchFilterAdaptiveWaitPercentile()).thenReturn(90);
+    RevCommit localCommit = repo.branch(A_TEST_REF_NAME).commit().create();
+    for (int i = 0; i < LocalRefConvergenceTracker.MIN_SAMPLES; i++) {
+      tracker.awaitLocalRefUpdate(
+          Filter.FETCH,
+          A_TEST_PROJECT_NAME,
+          repo.getRepository(),
+          A_TEST_REF_NAME,
+          AN_OBJECT_ID_1,
+          FIXED_WAIT_MSEC);
+    }
+    assertThat(tracker.waitTimeMsec(Filter.FETCH, A_TEST_PROJECT_NAME))
+        .isLessThan((long) FIXED_WAIT_MSEC);
+
+    for (int i = 0; i < LocalRefConvergenceTracker.MIN_SAMPLES; i++) {
+      tracker.awaitLocalRefUpdate(
+          Filter.FETCH,
+          A_TEST_PROJECT_NAME,
+          repo.getRepository(),
+          A_TEST_REF_NAME,
+          localCommit.getId(),
+          1L);
+    }
+
+    assertThat(tracker.waitTimeMsec(Filter.FETCH, A_TEST_PROJECT_NAME))
+        .isEqualTo(FIXED_WAIT_MSEC);
+  }
+}
@@ -23,7 +23,9 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.gerritforge.gerrit.globalrefdb.validation.SharedRefDatabaseWrapper;
+import com.gerritforge.gerrit.globalrefdb.validation.dfsrefdb.LegacyDefaultSharedRefEnforcement;
 import com.google.gerrit.entities.Project;
+import com.google.gerrit.metrics.DisabledMetricMaker;
 import com.google.gerrit.testing.InMemoryRepositoryManager;
 import com.google.gerrit.testing.InMemoryTestEnvironment;
 import com.google.inject.Inject;
@@ -84,7 +86,7 @@ public class MultisiteReplicationFetchFilterTest extends LocalDiskRepositoryTest
         .get(eq(projectName), eq(barRefName), eq(String.class));
 
     MultisiteReplicationFetchFilter fetchFilter =
-        new MultisiteReplicationFetchFilter(sharedRefDatabaseMock, gitRepositoryManager, config);
+        newFetchFilter(sharedRefDatabaseMock);
     Set<String> filteredRefs = fetchFilter.filter(project, refs);
 
     assertThat(filteredRefs).isEmpty();
@@ -106,12 +108,29 @@ public class MultisiteReplicationFetchFilterTest extends LocalDiskRepositoryTest
         .get(eq(projectName), eq(outdatedRef), eq(String.class));
 
     MultisiteReplicationFetchFilter fetchFilter =
-        new MultisiteReplicationFetchFilter(sharedRefDatabaseMock, gitRepositoryManager, config);
+        newFetchFilter(sharedRefDatabaseMock);
     Set<String> filteredRefsToFetch = fetchFilter.filter(project, refsToFetch);
 
     assertThat(filteredRefsToFetch).containsExactly(outdatedRef);
   }
 
+  @Test
+  public void shouldNotFilterOutRecentlyOutdatedRefWithoutCheckingTheSharedRefDb()
+      throws Exception {
+    String outdatedRef = "refs/heads/outdated";
+    newRef(outdatedRef);
+    doReturn(Optional.of(AN_OUTDATED_OBJECT_ID.getName()))
+        .when(sharedRefDatabaseMock)
+        .get(eq(projectName), eq(outdatedRef), eq(String.class));
+    doReturn(60000).when(replicationFilterConfig).fetchFilterNotUpToDateCacheTtlMs();
+
+    MultisiteReplicationFetchFilter fetchFilter = newFetchFilter(sharedRefDatabaseMock);
+
+    assertThat(fetchFilter.filter(project, Set.of(outdatedRef))).containsExactly(outdatedRef);
+    assertThat(fetchFilter.filter(project, Set.of(outdatedRef))).containsExactly(outdatedRef);
+    verify(sharedRefDatabaseMock, times(2)).get(any(), any(), any());
+  }
+
   @Test
   public void shouldLoadLocalVersionAndFilterOut() throws Exception {
     String temporaryOutdated = "refs/heads/temporaryOutdated";
@@ -124,7 +143,7 @@ public class MultisiteReplicationFetchFilterTest extends LocalDiskRepositoryTest
         .get(eq(projectName), eq(temporaryOutdated), eq(String.class));
 
     MultisiteReplicationFetchFilter fetchFilter =
-        new MultisiteReplicationFetchFilter(sharedRefDatabaseMock, gitRepositoryManager, config);
+        newFetchFilter(sharedRefDatabaseMock);
     Set<String> filteredRefsToFetch = fetchFilter.filter(project, refsToFetch);
 
     assertThat(filteredRefsToFetch).isEmpty();
@@ -144,7 +163,7 @@ public class MultisiteReplicationFetchFilterTest extends LocalDiskRepositoryTest
         .get(eq(projectName), eq(temporaryOutdated), eq(String.class));
 
     MultisiteReplicationFetchFilter fetchFilter =
-        new MultisiteReplicationFetchFilter(sharedRefDatabaseMock, gitRepositoryManager, config);
+        newFetchFilter(sharedRefDatabaseMock);
     Set<String> filteredRefsToFetch = fetchFilter.filter(project, refsToFetch);
 
     assertThat(filteredRefsToFetch).hasSize(1);
@@ -164,7 +183,7 @@ public class MultisiteReplicationFetchFilterTest extends LocalDiskRepositoryTest
     Set<String> refsToFetch = Set.of(temporaryOutdated);
 
     MultisiteReplicationFetchFilter fetchFilter =
-        new MultisiteReplicationFetchFilter(sharedRefDatabaseMock, gitRepositoryManager, config);
+        newFetchFilter(sharedRefDatabaseMock);
     Set<String> filteredRefsToFetch = fetchFilter.filter(project, refsToFetch);
 
     assertThat(filteredRefsToFetch).hasSize(1);
@@ -176,7 +195,7 @@ public class MultisiteReplicationFetchFilterTest extends LocalDiskRepositoryTest
     Set<String> refsToFetch = Set.of(refsMultisiteVersionRef);
 
     MultisiteReplicationFetchFilter fetchFilter =
-        new MultisiteReplicationFetchFilter(sharedRefDatabaseMock, gitRepositoryManager, config);
+        newFetchFilter(sharedRefDatabaseMock);
     Set<String> filteredRefsToFetch = fetchFilter.filter(project, refsToFetch);
 
     assertThat(filteredRefsToFetch).hasSize(1);
@@ -193,7 +212,7 @@ public class MultisiteReplicationFetchFilterTest extends LocalDiskRepositoryTest
         .get(eq(projectName), eq(temporaryOutdated), eq(String.class));
 
     MultisiteReplicationFetchFilter fetchFilter =
-        new MultisiteReplicationFetchFilter(sharedRefDatabaseMock, gitRepositoryManager, config);
+        newFetchFilter(sharedRefDatabaseMock);
     Set<String> filteredRefsToFetch = fetchFilter.filter(project, refsToFetch);
 
     assertThat(filteredRefsToFetch).hasSize(1);
@@ -207,12 +226,28 @@ public class MultisiteReplicationFetchFilterTest extends LocalDiskRepositoryTest
     Set<String> refsToFetch = Set.of(nonExisting);
 
     MultisiteReplicationFetchFilter fetchFilter =
-        new MultisiteReplicationFetchFilter(sharedRefDatabaseMock, gitRepositoryManager, config);
+        newFetchFilter(sharedRefDatabaseMock);
     Set<String> filteredRefsToFetch = fetchFilter.filter(project, refsToFetch);
 
     assertThat(filteredRefsToFetch).hasSize(1);
   }
 
+  private MultisiteReplicationFetchFilter newFetchFilter(SharedRefDatabaseWrapper sharedRefDb) {
+    SharedRefDbReadMetrics metrics = new SharedRefDbReadMetrics(new DisabledMetricMaker());
+    ReplicationFilterMetrics replicationFilterMetrics =
+        new ReplicationFilterMetrics(new DisabledMetricMaker());
+    SharedRefDbReadCoalescer sharedRefDbReader = new SharedRefDbReadCoalescer(sharedRefDb, metrics);
+    return new MultisiteReplicationFetchFilter(
+        sharedRefDb,
+        sharedRefDbReader,
+        new SharedRefDbNearCache(sharedRefDbReader, config, metrics),
+        new RefTrackingDecisionTable(new LegacyDefaultSharedRefEnforcement(), metrics),
+        new LocalRefConvergenceTracker(config, replicationFilterMetrics),
+        new NotUpToDateRefsCache(config, replicationFilterMetrics),
+        gitRepositoryManager,
+        config);
+  }
+
   private RevCommit newRef(String refName) throws Exception {
     return repo.branch(refName).commit().create();
   }
@@ -22,7 +22,9 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.gerritforge.gerrit.globalrefdb.validation.SharedRefDatabaseWrapper;
+import com.gerritforge.gerrit.globalrefdb.validation.dfsrefdb.LegacyDefaultSharedRefEnforcement;
 import com.google.gerrit.entities.Project;
+import com.google.gerrit.metrics.DisabledMetricMaker;
 import com.google.gerrit.testing.InMemoryRepositoryManager;
 import com.google.gerrit.testing.InMemoryTestEnvironment;
 import com.google.inject.Inject;
@@ -77,7 +79,7 @@ public class MultisiteReplicationPushFilterTest extends LocalDiskRepositoryTestC
     doReturn(true).when(sharedRefDatabaseMock).isUpToDate(eq(projectName), any());
 
     MultisiteReplicationPushFilter pushFilter =
-        new MultisiteReplicationPushFilter(sharedRefDatabaseMock, gitRepositoryManager, config);
+        newPushFilter(sharedRefDatabaseMock);
     List<RemoteRefUpdate> filteredRefUpdates = pushFilter.filter(project, refUpdates);
 
     assertThat(filteredRefUpdates).containsExactlyElementsIn(refUpdates);
@@ -92,12 +94,26 @@ public class MultisiteReplicationPushFilterTest extends LocalDiskRepositoryTestC
         new FakeSharedRefDatabaseWrapper(outdatedRef.getSrcRef());
 
     MultisiteReplicationPushFilter pushFilter =
-        new MultisiteReplicationPushFilter(sharedRefDatabase, gitRepositoryManager, config);
+        newPushFilter(sharedRefDatabase);
     List<RemoteRefUpdate> filteredRefUpdates = pushFilter.filter(project, refUpdates);
 
     assertThat(filteredRefUpdates).containsExactly(refUpToDate);
   }
 
+  @Test
+  public void shouldFilterOutRecentlyOutdatedRefWithoutCheckingTheSharedRefDb() throws Exception {
+    RemoteRefUpdate outdatedRef = refUpdate("refs/heads/outdated");
+    List<RemoteRefUpdate> refUpdates = Collections.singletonList(outdatedRef);
+    doReturn(false).when(sharedRefDatabaseMock).isUpToDate(eq(projectName), any());
+    doReturn(60000).when(replicationFilterConfig).pushFilterNotUpToDateCacheTtlMs();
+
+    MultisiteReplicationPushFilter pushFilter = newPushFilter(sharedRefDatabaseMock);
+
+    assertThat(pushFilter.filter(project, refUpdates)).isEmpty();
+    assertThat(pushFilter.filter(project, refUpdates)).isEmpty();
+    verify(sharedRefDatabaseMock, times(2)).isUpToDate(any(), any());
+  }
+
   @Test
   public void shouldLoadLocalVersionAndNotFilter() throws Exception {
     String refName = "refs/heads/temporaryOutdated";
@@ -108,7 +124,7 @@ public class MultisiteReplicationPushFilterTest extends LocalDiskRepositoryTestC
     doReturn(false).doReturn(true).when(sharedRefDatabaseMock).isUpToDate(eq(projectName), any());
 
     MultisiteReplicationPushFilter pushFilter =
-        new MultisiteReplicationPushFilter(sharedRefDatabaseMock, gitRepositoryManager, config);
+        newPushFilter(sharedRefDatabaseMock);
     List<RemoteRefUpdate> filteredRefUpdates = pushFilter.filter(project, refUpdates);
 
     assertThat(filteredRefUpdates).hasSize(1);
@@ -125,7 +141,7 @@ public class MultisiteReplicationPushFilterTest extends LocalDiskRepositoryTestC
     doReturn(false).doReturn(false).when(sharedRefDatabaseMock).isUpToDate(eq(projectName), any());
 
     MultisiteReplicationPushFilter pushFilter =
-        new MultisiteReplicationPushFilter(sharedRefDatabaseMock, gitRepositoryManager, config);
+        newPushFilter(sharedRefDatabaseMock);
     List<RemoteRefUpdate> filteredRefUpdates = pushFilter.filter(project, refUpdates);
 
     assertThat(filteredRefUpdates).isEmpty();
@@ -144,12 +160,27 @@ public class MultisiteReplicationPushFilterTest extends LocalDiskRepositoryTestC
         new FakeSharedRefDatabaseWrapper(changeMetaRef.getSrcRef());
 
     MultisiteReplicationPushFilter pushFilter =
-        new MultisiteReplicationPushFilter(sharedRefDatabase, gitRepositoryManager, config);
+        newPushFilter(sharedRefDatabase);
     List<RemoteRefUpdate> filteredRefUpdates = pushFilter.filter(project, refUpdates);
 
     assertThat(filteredRefUpdates).containsExactly(refUpToDate, refChangeUpToDate);
   }
 
+  private MultisiteReplicationPushFilter newPushFilter(SharedRefDatabaseWrapper sharedRefDb) {
+    SharedRefDbReadMetrics metrics = new SharedRefDbReadMetrics(new DisabledMetricMaker());
+    ReplicationFilterMetrics replicationFilterMetrics =
+        new ReplicationFilterMetrics(new DisabledMetricMaker());
+    SharedRefDbReadCoalescer sharedRefDbReader = new SharedRefDbReadCoalescer(sharedRefDb, metrics);
+    return new MultisiteReplicationPushFilter(
+        sharedRefDbReader,
+        new SharedRefDbNearCache(sharedRefDbReader, config, metrics),
+        new RefTrackingDecisionTable(new LegacyDefaultSharedRefEnforcement(), metrics),
+        new LocalRefConvergenceTracker(config, replicationFilterMetrics),
+        new NotUpToDateRefsCache(config, replicationFilterMetrics),
+        gitRepositoryManager,
+        config);
+  }
+
   private RemoteRefUpdate refUpdate(String refName) throws Exception {
     ObjectId srcObjId = ObjectId.fromString("0000000000000000000000000000000000000001");
     Ref srcRef = new ObjectIdRef.Unpeeled(Ref.Storage.NEW, refName, srcObjId);
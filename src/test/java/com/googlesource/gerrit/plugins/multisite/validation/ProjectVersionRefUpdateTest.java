@@ -20,9 +20,12 @@ import static com.googlesource.gerrit.plugins.multisite.validation.ProjectVersio
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -31,11 +34,15 @@ import com.gerritforge.gerrit.globalrefdb.validation.SharedRefDatabaseWrapper;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.common.AccountInfo;
 import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.extensions.events.ProjectDeletedListener;
+import com.google.gerrit.metrics.DisabledMetricMaker;
 import com.google.gerrit.server.extensions.events.GitReferenceUpdated;
+import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.gerrit.server.project.ProjectConfig;
 import com.google.gerrit.testing.InMemoryRepositoryManager;
 import com.google.gerrit.testing.InMemoryTestEnvironment;
 import com.google.inject.Inject;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
 import com.googlesource.gerrit.plugins.multisite.ProjectVersionLogger;
 import com.googlesource.gerrit.plugins.multisite.validation.dfsrefdb.RefFixture;
 import java.io.IOException;
@@ -43,9 +50,13 @@ import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.eclipse.jgit.errors.LargeObjectException;
 import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
 import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.Ref;
@@ -55,6 +66,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -72,6 +84,10 @@ public class ProjectVersionRefUpdateTest implements RefFixture {
   @Mock SharedRefDatabaseWrapper sharedRefDb;
   @Mock GitReferenceUpdated gitReferenceUpdated;
   @Mock ProjectVersionLogger verLogger;
+  @Mock ScheduledExecutorService executor;
+  @Mock ProjectDeletedListener.Event projectDeletedEvent;
+
+  private final HybridLogicalClock clock = new HybridLogicalClock();
 
   @Inject private ProjectConfig.Factory projectConfigFactory;
   @Inject private InMemoryRepositoryManager repoManager;
@@ -100,8 +116,7 @@ public class ProjectVersionRefUpdateTest implements RefFixture {
     when(refUpdatedEvent.getProjectName()).thenReturn(A_TEST_PROJECT_NAME);
     when(refUpdatedEvent.getRefNames()).thenReturn(Set.of(A_TEST_REF_NAME));
 
-    new ProjectVersionRefUpdateImpl(repoManager, sharedRefDb, gitReferenceUpdated, verLogger)
-        .onGitBatchRefUpdate(refUpdatedEvent);
+    newProjectVersionRefUpdate().onGitBatchRefUpdate(refUpdatedEvent);
 
     Ref ref = repo.getRepository().findRef(MULTI_SITE_VERSIONING_REF);
 
@@ -125,8 +140,7 @@ public class ProjectVersionRefUpdateTest implements RefFixture {
     when(refUpdatedEvent.getRefNames())
         .thenReturn(Set.of(A_TEST_REF_NAME, A_REF_NAME_OF_A_PATCHSET));
 
-    new ProjectVersionRefUpdateImpl(repoManager, sharedRefDb, gitReferenceUpdated, verLogger)
-        .onGitBatchRefUpdate(refUpdatedEvent);
+    newProjectVersionRefUpdate().onGitBatchRefUpdate(refUpdatedEvent);
 
     verify(sharedRefDb, atMost(1))
         .compareAndPut(any(Project.NameKey.class), any(Ref.class), any(ObjectId.class));
@@ -140,8 +154,7 @@ public class ProjectVersionRefUpdateTest implements RefFixture {
     when(refUpdatedEvent.getRefNames())
         .thenReturn(Set.of(A_TEST_REF_NAME, MULTI_SITE_VERSIONING_REF));
 
-    new ProjectVersionRefUpdateImpl(repoManager, sharedRefDb, gitReferenceUpdated, verLogger)
-        .onGitBatchRefUpdate(refUpdatedEvent);
+    newProjectVersionRefUpdate().onGitBatchRefUpdate(refUpdatedEvent);
 
     verify(sharedRefDb, atMost(1))
         .compareAndPut(any(Project.NameKey.class), any(Ref.class), any(ObjectId.class));
@@ -157,8 +170,7 @@ public class ProjectVersionRefUpdateTest implements RefFixture {
             Set.of(A_TEST_UPDATED_REF),
             new AccountInfo(A_TEST_ACCOUNT_ID));
 
-    new ProjectVersionRefUpdateImpl(repoManager, sharedRefDb, gitReferenceUpdated, verLogger)
-        .onGitBatchRefUpdate(refUpdatedEvent);
+    newProjectVersionRefUpdate().onGitBatchRefUpdate(refUpdatedEvent);
 
     Ref ref = repo.getRepository().findRef(MULTI_SITE_VERSIONING_REF);
 
@@ -192,8 +204,7 @@ public class ProjectVersionRefUpdateTest implements RefFixture {
     when(refUpdatedEvent.getProjectName()).thenReturn(A_TEST_PROJECT_NAME);
     when(refUpdatedEvent.getRefNames()).thenReturn(Set.of(A_TEST_REF_NAME));
 
-    ProjectVersionRefUpdateImpl projectVersion =
-        new ProjectVersionRefUpdateImpl(repoManager, sharedRefDb, gitReferenceUpdated, verLogger);
+    ProjectVersionRefUpdateImpl projectVersion = newProjectVersionRefUpdate();
     projectVersion.onGitBatchRefUpdate(refUpdatedEvent);
 
     Ref ref = repo.getRepository().findRef(MULTI_SITE_VERSIONING_REF);
@@ -228,8 +239,7 @@ public class ProjectVersionRefUpdateTest implements RefFixture {
     when(refUpdatedEvent.getProjectName()).thenReturn(A_TEST_PROJECT_NAME);
     when(refUpdatedEvent.getRefNames()).thenReturn(Set.of(A_TEST_REF_NAME));
 
-    new ProjectVersionRefUpdateImpl(repoManager, sharedRefDb, gitReferenceUpdated, verLogger)
-        .onGitBatchRefUpdate(refUpdatedEvent);
+    newProjectVersionRefUpdate().onGitBatchRefUpdate(refUpdatedEvent);
 
     Ref ref = repo.getRepository().findRef(MULTI_SITE_VERSIONING_REF);
 
@@ -245,6 +255,156 @@ public class ProjectVersionRefUpdateTest implements RefFixture {
     verify(verLogger).log(A_TEST_PROJECT_NAME_KEY, storedVersion, 0);
   }
 
+  @Test
+  public void producerShouldCoalesceProjectVersionUpdatesWithinTheUpdateInterval()
+      throws IOException {
+    when(sharedRefDb.compareAndPut(any(Project.NameKey.class), any(String.class), any(), any()))
+        .thenReturn(true);
+    when(refUpdatedEvent.getProjectName()).thenReturn(A_TEST_PROJECT_NAME);
+    when(refUpdatedEvent.getRefNames()).thenReturn(Set.of(A_TEST_REF_NAME));
+    Config multiSiteConfig = new Config();
+    multiSiteConfig.setString("ref-database", null, "projectVersionUpdateInterval", "1s");
+    ProjectVersionRefUpdateImpl projectVersion =
+        newProjectVersionRefUpdate(new Configuration(multiSiteConfig, new Config()));
+
+    projectVersion.onGitBatchRefUpdate(refUpdatedEvent);
+    projectVersion.onGitBatchRefUpdate(refUpdatedEvent);
+
+    assertThat(repo.getRepository().findRef(MULTI_SITE_VERSIONING_REF)).isNull();
+    ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).schedule(flush.capture(), eq(1000L), eq(TimeUnit.MILLISECONDS));
+
+    flush.getValue().run();
+
+    assertThat(repo.getRepository().findRef(MULTI_SITE_VERSIONING_REF)).isNotNull();
+    verify(verLogger).log(eq(A_TEST_PROJECT_NAME_KEY), anyLong(), eq(0L));
+  }
+
+  @Test
+  public void producerShouldUpdateProjectVersionWithoutDelayWhenTheExecutorIsStopped()
+      throws IOException {
+    when(sharedRefDb.compareAndPut(any(Project.NameKey.class), any(String.class), any(), any()))
+        .thenReturn(true);
+    when(refUpdatedEvent.getProjectName()).thenReturn(A_TEST_PROJECT_NAME);
+    when(refUpdatedEvent.getRefNames()).thenReturn(Set.of(A_TEST_REF_NAME));
+    when(executor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+        .thenThrow(new RejectedExecutionException());
+    Config multiSiteConfig = new Config();
+    multiSiteConfig.setString("ref-database", null, "projectVersionUpdateInterval", "1s");
+
+    newProjectVersionRefUpdate(new Configuration(multiSiteConfig, new Config()))
+        .onGitBatchRefUpdate(refUpdatedEvent);
+
+    assertThat(repo.getRepository().findRef(MULTI_SITE_VERSIONING_REF)).isNotNull();
+  }
+
+  @Test
+  public void getProjectLocalVersionShouldBeServedFromMemoryOnceLoaded() throws Exception {
+    repo.update(MULTI_SITE_VERSIONING_REF, repo.blob("123"));
+    GitRepositoryManager repoManagerSpy = spy(repoManager);
+    ProjectVersionRefUpdateImpl projectVersion =
+        newProjectVersionRefUpdate(repoManagerSpy, new Configuration(new Config(), new Config()));
+
+    assertThat(projectVersion.getProjectLocalVersion(A_TEST_PROJECT_NAME)).hasValue(123L);
+    assertThat(projectVersion.getProjectLocalVersion(A_TEST_PROJECT_NAME)).hasValue(123L);
+
+    verify(repoManagerSpy, times(1)).openRepository(A_TEST_PROJECT_NAME_KEY);
+  }
+
+  @Test
+  public void getProjectLocalVersionShouldReflectTheLocalVersionUpdates() throws Exception {
+    when(sharedRefDb.compareAndPut(any(Project.NameKey.class), any(String.class), any(), any()))
+        .thenReturn(true);
+    when(refUpdatedEvent.getProjectName()).thenReturn(A_TEST_PROJECT_NAME);
+    when(refUpdatedEvent.getRefNames()).thenReturn(Set.of(A_TEST_REF_NAME));
+    ProjectVersionRefUpdateImpl projectVersion = newProjectVersionRefUpdate();
+    assertThat(projectVersion.getProjectLocalVersion(A_TEST_PROJECT_NAME)).isEmpty();
+
+    projectVersion.onGitBatchRefUpdate(refUpdatedEvent);
+
+    Ref ref = repo.getRepository().findRef(MULTI_SITE_VERSIONING_REF);
+    long storedVersion = readLongObject(repo.getRepository().open(ref.getObjectId()));
+    assertThat(projectVersion.getProjectLocalVersion(A_TEST_PROJECT_NAME)).hasValue(storedVersion);
+  }
+
+  @Test
+  public void getProjectLocalVersionShouldBeEmptyOnceTheVersionRefIsDeleted() throws Exception {
+    when(refUpdatedEvent.getProjectName()).thenReturn(A_TEST_PROJECT_NAME);
+    when(refUpdatedEvent.getRefNames()).thenReturn(Set.of(MULTI_SITE_VERSIONING_REF));
+    repo.update(MULTI_SITE_VERSIONING_REF, repo.blob("123"));
+    ProjectVersionRefUpdateImpl projectVersion = newProjectVersionRefUpdate();
+    assertThat(projectVersion.getProjectLocalVersion(A_TEST_PROJECT_NAME)).hasValue(123L);
+
+    repo.delete(MULTI_SITE_VERSIONING_REF);
+    projectVersion.onGitBatchRefUpdate(refUpdatedEvent);
+
+    assertThat(projectVersion.getProjectLocalVersion(A_TEST_PROJECT_NAME)).isEmpty();
+  }
+
+  @Test
+  public void getProjectLocalVersionShouldBeRefreshedUponVersionRefUpdatedEvent()
+      throws Exception {
+    when(refUpdatedEvent.getProjectName()).thenReturn(A_TEST_PROJECT_NAME);
+    when(refUpdatedEvent.getRefNames()).thenReturn(Set.of(MULTI_SITE_VERSIONING_REF));
+    repo.update(MULTI_SITE_VERSIONING_REF, repo.blob("123"));
+    ProjectVersionRefUpdateImpl projectVersion = newProjectVersionRefUpdate();
+    assertThat(projectVersion.getProjectLocalVersion(A_TEST_PROJECT_NAME)).hasValue(123L);
+
+    repo.update(MULTI_SITE_VERSIONING_REF, repo.blob("456"));
+    projectVersion.onGitBatchRefUpdate(refUpdatedEvent);
+
+    assertThat(projectVersion.getProjectLocalVersion(A_TEST_PROJECT_NAME)).hasValue(456L);
+  }
+
+  @Test
+  public void getProjectLocalVersionShouldBeRemovedUponProjectDeletion() throws Exception {
+    when(projectDeletedEvent.getProjectName()).thenReturn(A_TEST_PROJECT_NAME);
+    repo.update(MULTI_SITE_VERSIONING_REF, repo.blob("123"));
+    ProjectVersionRefUpdateImpl projectVersion = newProjectVersionRefUpdate();
+    assertThat(projectVersion.getProjectLocalVersion(A_TEST_PROJECT_NAME)).hasValue(123L);
+
+    repo.delete(MULTI_SITE_VERSIONING_REF);
+    projectVersion.onProjectDeleted(projectDeletedEvent);
+
+    assertThat(projectVersion.getProjectLocalVersion(A_TEST_PROJECT_NAME)).isEmpty();
+  }
+
+  @Test
+  public void producerShouldGenerateVersionsAheadOfTheObservedRemoteVersion() {
+    long remoteVersionAhead = System.currentTimeMillis() + 60000L;
+    when(sharedRefDb.get(A_TEST_PROJECT_NAME_KEY, MULTI_SITE_VERSIONING_VALUE_REF, String.class))
+        .thenReturn(Optional.of(Long.toString(remoteVersionAhead)));
+    ProjectVersionRefUpdateImpl projectVersion = newProjectVersionRefUpdate();
+
+    projectVersion.getProjectRemoteVersion(A_TEST_PROJECT_NAME);
+
+    assertThat(projectVersion.getCurrentGlobalVersionNumber()).isGreaterThan(remoteVersionAhead);
+  }
+
+  private ProjectVersionRefUpdateImpl newProjectVersionRefUpdate() {
+    return newProjectVersionRefUpdate(new Configuration(new Config(), new Config()));
+  }
+
+  private ProjectVersionRefUpdateImpl newProjectVersionRefUpdate(Configuration config) {
+    return newProjectVersionRefUpdate(repoManager, config);
+  }
+
+  private ProjectVersionRefUpdateImpl newProjectVersionRefUpdate(
+      GitRepositoryManager gitRepositoryManager, Configuration config) {
+    SharedRefDbReadMetrics metrics = new SharedRefDbReadMetrics(new DisabledMetricMaker());
+    return new ProjectVersionRefUpdateImpl(
+        gitRepositoryManager,
+        sharedRefDb,
+        new SharedRefDbNearCache(
+            new SharedRefDbReadCoalescer(sharedRefDb, metrics), config, metrics),
+        gitReferenceUpdated,
+        verLogger,
+        executor,
+        new ProjectVersionMetrics(new DisabledMetricMaker()),
+        clock,
+        config);
+  }
+
   private long readLongObject(ObjectLoader loader)
       throws LargeObjectException, UnsupportedEncodingException {
     String boutString = new String(loader.getBytes(), StandardCharsets.UTF_8.name());
@@ -256,8 +416,7 @@ public class ProjectVersionRefUpdateTest implements RefFixture {
     when(refUpdatedEvent.getProjectName()).thenReturn("aNonExistentProject");
     when(refUpdatedEvent.getRefNames()).thenReturn(Set.of(A_TEST_REF_NAME));
 
-    new ProjectVersionRefUpdateImpl(repoManager, sharedRefDb, gitReferenceUpdated, verLogger)
-        .onGitBatchRefUpdate(refUpdatedEvent);
+    newProjectVersionRefUpdate().onGitBatchRefUpdate(refUpdatedEvent);
 
     Ref ref = repo.getRepository().findRef(MULTI_SITE_VERSIONING_REF);
     assertThat(ref).isNull();
@@ -271,8 +430,7 @@ public class ProjectVersionRefUpdateTest implements RefFixture {
         .thenReturn(Optional.of("123"));
 
     Optional<Long> version =
-        new ProjectVersionRefUpdateImpl(repoManager, sharedRefDb, gitReferenceUpdated, verLogger)
-            .getProjectRemoteVersion(A_TEST_PROJECT_NAME);
+        newProjectVersionRefUpdate().getProjectRemoteVersion(A_TEST_PROJECT_NAME);
 
     assertThat(version.isPresent()).isTrue();
     assertThat(version.get()).isEqualTo(123L);
@@ -0,0 +1,93 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate.MULTI_SITE_VERSIONING_REF;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.gerritforge.gerrit.globalrefdb.validation.dfsrefdb.LegacySharedRefEnforcement;
+import com.gerritforge.gerrit.globalrefdb.validation.dfsrefdb.LegacySharedRefEnforcement.EnforcePolicy;
+import com.googlesource.gerrit.plugins.multisite.validation.dfsrefdb.RefFixture;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RefTrackingDecisionTableTest implements RefFixture {
+
+  @Mock LegacySharedRefEnforcement refEnforcement;
+  @Mock SharedRefDbReadMetrics metrics;
+
+  private RefTrackingDecisionTable refTracking;
+
+  @Before
+  public void setUp() {
+    refTracking = new RefTrackingDecisionTable(refEnforcement, metrics);
+  }
+
+  @Test
+  public void shouldNotTrackIgnoredRefsWithoutEvaluatingEnforcementPolicies() {
+    when(refEnforcement.isRefToBeIgnoredBySharedRefDb(anyString())).thenCallRealMethod();
+
+    assertThat(refTracking.isTracked(A_TEST_PROJECT_NAME, MULTI_SITE_VERSIONING_REF)).isFalse();
+    assertThat(refTracking.isTracked(A_TEST_PROJECT_NAME, A_REF_NAME_OF_A_PATCHSET)).isFalse();
+    assertThat(refTracking.isTracked(A_TEST_PROJECT_NAME, "refs/draft-comments/01/1/1000000"))
+        .isFalse();
+
+    verify(refEnforcement, never()).getPolicy(anyString());
+    verify(refEnforcement, never()).getPolicy(anyString(), anyString());
+    verify(metrics, times(3)).incrementLookupAvoided();
+  }
+
+  @Test
+  public void shouldTrackRefsRequiredByEnforcementRules() {
+    String changeMetaRef = "refs/changes/01/1/meta";
+    when(refEnforcement.getPolicy(A_TEST_PROJECT_NAME)).thenReturn(EnforcePolicy.REQUIRED);
+    when(refEnforcement.getPolicy(A_TEST_PROJECT_NAME, A_TEST_REF_NAME))
+        .thenReturn(EnforcePolicy.REQUIRED);
+    when(refEnforcement.getPolicy(A_TEST_PROJECT_NAME, changeMetaRef))
+        .thenReturn(EnforcePolicy.REQUIRED);
+
+    assertThat(refTracking.isTracked(A_TEST_PROJECT_NAME, A_TEST_REF_NAME)).isTrue();
+    assertThat(refTracking.isTracked(A_TEST_PROJECT_NAME, changeMetaRef)).isTrue();
+  }
+
+  @Test
+  public void shouldNotTrackRefsIgnoredByEnforcementRules() {
+    when(refEnforcement.getPolicy(A_TEST_PROJECT_NAME)).thenReturn(EnforcePolicy.REQUIRED);
+    when(refEnforcement.getPolicy(A_TEST_PROJECT_NAME, A_TEST_REF_NAME))
+        .thenReturn(EnforcePolicy.IGNORED);
+
+    assertThat(refTracking.isTracked(A_TEST_PROJECT_NAME, A_TEST_REF_NAME)).isFalse();
+    verify(metrics).incrementLookupAvoided();
+  }
+
+  @Test
+  public void shouldEvaluateProjectPolicyOnlyOnce() {
+    when(refEnforcement.getPolicy(A_TEST_PROJECT_NAME)).thenReturn(EnforcePolicy.IGNORED);
+
+    assertThat(refTracking.isTracked(A_TEST_PROJECT_NAME, A_TEST_REF_NAME)).isFalse();
+    assertThat(refTracking.isTracked(A_TEST_PROJECT_NAME, aBranchRef())).isFalse();
+
+    verify(refEnforcement, times(1)).getPolicy(A_TEST_PROJECT_NAME);
+  }
+}
@@ -0,0 +1,151 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate.MULTI_SITE_VERSIONING_REF;
+import static com.googlesource.gerrit.plugins.multisite.validation.ProjectVersionRefUpdate.MULTI_SITE_VERSIONING_VALUE_REF;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.gerritforge.gerrit.globalrefdb.validation.SharedRefDatabaseWrapper;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.googlesource.gerrit.plugins.multisite.Configuration;
+import com.googlesource.gerrit.plugins.multisite.validation.dfsrefdb.RefFixture;
+import java.util.Optional;
+import org.eclipse.jgit.lib.Ref;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SharedRefDbNearCacheTest implements RefFixture {
+
+  @Mock SharedRefDatabaseWrapper sharedRefDatabaseMock;
+  @Mock Configuration config;
+
+  @Test
+  public void shouldServeSecondReadFromNearCache() {
+    when(sharedRefDatabaseMock.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class))
+        .thenReturn(Optional.of(AN_OBJECT_ID_1.getName()));
+
+    SharedRefDbNearCache nearCache = newNearCache(60000L);
+
+    assertThat(nearCache.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME))
+        .hasValue(AN_OBJECT_ID_1.getName());
+    assertThat(nearCache.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME))
+        .hasValue(AN_OBJECT_ID_1.getName());
+    verify(sharedRefDatabaseMock, times(1))
+        .get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class);
+  }
+
+  @Test
+  public void shouldReadFromGlobalRefDbAfterInvalidation() {
+    when(sharedRefDatabaseMock.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class))
+        .thenReturn(Optional.of(AN_OBJECT_ID_1.getName()))
+        .thenReturn(Optional.of(AN_OBJECT_ID_2.getName()));
+
+    SharedRefDbNearCache nearCache = newNearCache(60000L);
+
+    assertThat(nearCache.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME))
+        .hasValue(AN_OBJECT_ID_1.getName());
+    nearCache.invalidate(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME);
+    assertThat(nearCache.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME))
+        .hasValue(AN_OBJECT_ID_2.getName());
+  }
+
+  @Test
+  public void shouldInvalidateVersionValueWhenVersionRefIsUpdated() {
+    when(sharedRefDatabaseMock.get(
+            A_TEST_PROJECT_NAME_KEY, MULTI_SITE_VERSIONING_VALUE_REF, String.class))
+        .thenReturn(Optional.of("1"))
+        .thenReturn(Optional.of("2"));
+
+    SharedRefDbNearCache nearCache = newNearCache(60000L);
+
+    assertThat(nearCache.get(A_TEST_PROJECT_NAME_KEY, MULTI_SITE_VERSIONING_VALUE_REF))
+        .hasValue("1");
+    nearCache.invalidate(A_TEST_PROJECT_NAME_KEY, MULTI_SITE_VERSIONING_REF);
+    assertThat(nearCache.get(A_TEST_PROJECT_NAME_KEY, MULTI_SITE_VERSIONING_VALUE_REF))
+        .hasValue("2");
+  }
+
+  @Test
+  public void shouldCacheReadsWhenOtherRefsAreUpdatedMeanwhile() {
+    SharedRefDbNearCache nearCache = newNearCache(60000L);
+    when(sharedRefDatabaseMock.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class))
+        .thenAnswer(
+            invocation -> {
+              nearCache.invalidate(A_TEST_PROJECT_NAME_KEY, "refs/heads/other");
+              return Optional.of(AN_OBJECT_ID_1.getName());
+            });
+
+    nearCache.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME);
+    nearCache.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME);
+    verify(sharedRefDatabaseMock, times(1))
+        .get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class);
+  }
+
+  @Test
+  public void shouldNotCacheReadsWhenTheSameRefIsUpdatedMeanwhile() {
+    SharedRefDbNearCache nearCache = newNearCache(60000L);
+    when(sharedRefDatabaseMock.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class))
+        .thenAnswer(
+            invocation -> {
+              nearCache.invalidate(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME);
+              return Optional.of(AN_OBJECT_ID_1.getName());
+            });
+
+    nearCache.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME);
+    nearCache.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME);
+    verify(sharedRefDatabaseMock, times(2))
+        .get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class);
+  }
+
+  @Test
+  public void shouldAlwaysReadFromGlobalRefDbWhenDisabled() {
+    when(sharedRefDatabaseMock.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class))
+        .thenReturn(Optional.of(AN_OBJECT_ID_1.getName()));
+
+    SharedRefDbNearCache nearCache = newNearCache(0L);
+
+    assertThat(nearCache.isEnabled()).isFalse();
+    nearCache.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME);
+    nearCache.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME);
+    verify(sharedRefDatabaseMock, times(2))
+        .get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class);
+  }
+
+  @Test
+  public void shouldConsiderUpToDateWhenRefIsNotTracked() throws Exception {
+    when(sharedRefDatabaseMock.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class))
+        .thenReturn(Optional.empty());
+
+    SharedRefDbNearCache nearCache = newNearCache(60000L);
+
+    Ref ref = newRef(A_TEST_REF_NAME, AN_OBJECT_ID_1);
+    assertThat(nearCache.isUpToDate(A_TEST_PROJECT_NAME_KEY, ref)).isTrue();
+  }
+
+  private SharedRefDbNearCache newNearCache(long ttlMsec) {
+    when(config.sharedRefDbNearCacheTtlMsec()).thenReturn(ttlMsec);
+    when(config.sharedRefDbNearCacheMaxSize()).thenReturn(100L);
+    SharedRefDbReadMetrics metrics = new SharedRefDbReadMetrics(new DisabledMetricMaker());
+    return new SharedRefDbNearCache(
+        new SharedRefDbReadCoalescer(sharedRefDatabaseMock, metrics), config, metrics);
+  }
+}
@@ -0,0 +1,95 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.multisite.validation;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.gerritforge.gerrit.globalrefdb.validation.SharedRefDatabaseWrapper;
+import com.googlesource.gerrit.plugins.multisite.validation.dfsrefdb.RefFixture;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SharedRefDbReadCoalescerTest implements RefFixture {
+
+  @Mock SharedRefDatabaseWrapper sharedRefDatabaseMock;
+  @Mock SharedRefDbReadMetrics metrics;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldShareInFlightReadForIdenticalLookups() throws Exception {
+    CountDownLatch readStarted = new CountDownLatch(1);
+    CountDownLatch releaseRead = new CountDownLatch(1);
+    when(sharedRefDatabaseMock.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class))
+        .thenAnswer(
+            invocation -> {
+              readStarted.countDown();
+              releaseRead.await(10, TimeUnit.SECONDS);
+              return Optional.of(AN_OBJECT_ID_1.getName());
+            });
+    SharedRefDbReadCoalescer coalescer =
+        new SharedRefDbReadCoalescer(sharedRefDatabaseMock, metrics);
+
+    Future<Optional<String>> firstRead =
+        executor.submit(() -> coalescer.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME));
+    assertThat(readStarted.await(10, TimeUnit.SECONDS)).isTrue();
+    Future<Optional<String>> secondRead =
+        executor.submit(() -> coalescer.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME));
+    verify(metrics, timeout(10000)).incrementCoalescedRead();
+    releaseRead.countDown();
+
+    assertThat(firstRead.get(10, TimeUnit.SECONDS)).hasValue(AN_OBJECT_ID_1.getName());
+    assertThat(secondRead.get(10, TimeUnit.SECONDS)).hasValue(AN_OBJECT_ID_1.getName());
+    verify(sharedRefDatabaseMock, times(1))
+        .get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class);
+    assertThat(coalescer.inFlightReads()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldNotShareSequentialReads() {
+    when(sharedRefDatabaseMock.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME, String.class))
+        .thenReturn(Optional.of(AN_OBJECT_ID_1.getName()))
+        .thenReturn(Optional.of(AN_OBJECT_ID_2.getName()));
+    SharedRefDbReadCoalescer coalescer =
+        new SharedRefDbReadCoalescer(sharedRefDatabaseMock, metrics);
+
+    assertThat(coalescer.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME))
+        .hasValue(AN_OBJECT_ID_1.getName());
+    assertThat(coalescer.get(A_TEST_PROJECT_NAME_KEY, A_TEST_REF_NAME))
+        .hasValue(AN_OBJECT_ID_2.getName());
+    verify(metrics, never()).incrementCoalescedRead();
+    assertThat(coalescer.inFlightReads()).isEqualTo(0);
+  }
+}